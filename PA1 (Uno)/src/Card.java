@@ -7,6 +7,7 @@ public class Card {
 	private int number;
 	private Colors color;
 	private Card next;
+	private final int kind;	// color*10+number, see UnoState
 	
 	/*
 	 *  Constructor
@@ -15,6 +16,7 @@ public class Card {
 		this.number=number;
 		this.color=color;
 		this.next=next;
+		this.kind=color.ordinal()*10+number;
 	}
 	
 	public int getNumber() {
@@ -25,6 +27,10 @@ public class Card {
 		return this.color;
 	}
 	
+	public int getKind() {
+		return this.kind;
+	}
+	
 	public Card getNext() {
 		return this.next;
 	}
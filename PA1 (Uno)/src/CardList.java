@@ -1,9 +1,26 @@
 public class CardList {
 	/* Attributes: first, keeps the front of the list
-	 * count, keeps track of the number of Cards on the list
+	 * last, keeps the back of the list (so concatenation does not walk it)
+	 * count, keeps track of the number of Cards on the list, every
+	 *        method below updates it as it adds or removes cards
+	 * index, what the list holds, kept in sync the same way as count:
+	 *        counts[kind], number of cards of each of the 40 kinds, where
+	 *               the kind of a card is color*10+number, followed by
+	 *               counts[40+color] and counts[44+number]
+	 *        present, bit kind is set while counts[kind]>0
+	 *        so search, getCard and moveTo(Card) know in O(1) whether a
+	 *        card is there; only when it is do they walk the list to it.
 	 */
 	private Card first;
+	private Card last;
 	private int count;
+	private int[] counts=new int[54];
+	private long present;
+	private Card[] scratch;	// reused by shuffle(RandomGenerator)
+
+	// the kinds of one color, and of one number (in all four colors)
+	private static final long COLOR_MASK=(1L<<10)-1;
+	private static final long NUMBER_MASK=1L|1L<<10|1L<<20|1L<<30;
 
 	public int size() {
 		return count;
@@ -13,6 +30,10 @@ public class CardList {
 		return this.first;
 	}
 	
+	public Card getLast() {
+		return this.last;
+	}
+	
 	/* 
 	 * Constructor (I did this one for you)
 	 * if all is true, it creates a complete deck of 40 cards,
@@ -21,6 +42,7 @@ public class CardList {
 	 */
 	public CardList(boolean all) {
 		first=null;
+		last=null;
 		count=0;
 		if (all) {
 			for (Card.Colors color : Card.Colors.values()) {
@@ -28,6 +50,11 @@ public class CardList {
 					add(number,color);
 				}	
 			}
+			// one card of each kind: index them all at once
+			java.util.Arrays.fill(counts, 0, 40, 1);
+			java.util.Arrays.fill(counts, 40, 44, 10);
+			java.util.Arrays.fill(counts, 44, 54, 4);
+			present = (1L << 40) - 1;
 		}
 	}
 
@@ -46,9 +73,13 @@ public class CardList {
 	/* DO THIS:
 	 * add: adds a card to the front of the list
 	 * given number and color
+	 *     only used by the constructor, which fills in the index itself
 	 */
 	private void add(int number,Card.Colors color) {
-		this.first = new Card(number, color, first);
+		this.first = new Card(number, color, this.first);
+		if (this.last == null) {
+			this.last = this.first;
+		}
 		this.count++;
 	}
 
@@ -56,20 +87,64 @@ public class CardList {
 	 * add: adds a card to the front of the list
 	 * given a reference to the new card
 	 */
-	private void add(Card card) {
+	public void add(Card card) {
 		card.setNext(this.first);
 		this.first = card;
+		if (this.last == null) {
+			this.last = card;
+		}
 		this.count++;
+		index(card, 1);
+	}
+	
+	/*
+	 * index: counts card in (delta 1) or out (delta -1) of the index
+	 */
+	private void index(Card card, int delta) {
+		int kind = card.getKind();
+		int color = kind / 10;
+		int number = kind - 10 * color;
+		int[] counts = this.counts;
+		int n = counts[kind] + delta;
+		counts[kind] = n;
+		counts[40 + color] += delta;
+		counts[44 + number] += delta;
+		long bit = 1L << kind;
+		present = n == 0 ? present & ~bit : present | bit;
+	}
+	
+	/*
+	 * hasMatch: true if some card of this list matches x in number or
+	 *           color, the same as search(x)!=null but without the walk
+	 */
+	public boolean hasMatch(Card x) {
+		int color = x.getColor().ordinal();
+		long mask = COLOR_MASK << (color * 10) | NUMBER_MASK << x.getNumber();
+		return (present & mask) != 0;
+	}
+	
+	/*
+	 * containsExact: true if this list has a card with the number and
+	 *                color of x, the same as getCard(x)!=null
+	 */
+	public boolean containsExact(Card x) {
+		return (present & 1L << x.getKind()) != 0;
+	}
+	
+	public int countColor(Card.Colors color) {
+		return counts[40 + color.ordinal()];
+	}
+	
+	public int countNumber(int number) {
+		return counts[44 + number];
 	}
 	
 	/* DO THIS:
 	 * countCards: Traverse the list and return the number of cards.
-	 *     When complex operations are done on a list, such as
-	 *     concatenation of lists, countCards is used to make sure that the
-	 *     number of cards is kept updated (just there because we are lazy
-	 *     and do not want to think about how to compute the new number
-	 *     of cards based on the original ones).
+	 *     count is now kept exact by every method, so this is no
+	 *     longer needed after a move; it is kept for debugging.
 	 */
+	@SuppressWarnings("unused")
 	private int countCards() {
 		Card current = this.first;
 		int counter = 0;
@@ -83,30 +158,47 @@ public class CardList {
 	/* DO THIS:
 	 * Append a new list of cards "list" at the end of the current list (this)
 	 * Notice that it might be possible for this.first to be null
+	 * The cards now belong to this, so list is left empty and can be
+	 * used again.
 	 */
 	public void concatenateWith(CardList list) {
+		if (list.first == null) {
+			return;
+		}
 		if (this.first == null) {
 			this.first = list.first;
-			this.count = list.count;
 		} else {
-			Card current = this.first;
-			while (current.getNext() != null) {
-				current = current.getNext();
-			}
-			current.setNext(list.first);
+			this.last.setNext(list.first);
+		}
+		this.last = list.last;
+		this.count += list.count;
+		for (int i = 0; i < counts.length; i++) {
+			this.counts[i] += list.counts[i];
+			list.counts[i] = 0;
 		}
+		this.present |= list.present;
+		list.first = null;
+		list.last = null;
+		list.count = 0;
+		list.present = 0;
 	}
 
 	/* DO THIS:
 	 * moveTo: move the front card from this to the front of destination
+	 *         (nothing happens if this is empty)
 	 */
 	public void moveTo(CardList destination) {
 		Card front = this.first;
+		if (front == null) {
+			return;
+		}
 		this.first = front.getNext();
-		front.setNext(destination.first);
-		destination.first = front;
-		this.count = this.countCards();
-		destination.count = destination.countCards();
+		if (this.first == null) {
+			this.last = null;
+		}
+		this.count--;
+		index(front, -1);
+		destination.add(front);
 	}
 	
 	/* DO THIS:
@@ -115,28 +207,24 @@ public class CardList {
 	 */	
 	public void moveTo(int num,CardList destination) {
 		for (int i = 0; i < num; i++) {
-			Card front = this.first;
-			this.first = front.getNext();
-			front.setNext(destination.first);
-			destination.add(front);
+			moveTo(destination);
 		}
-		this.count = this.countCards();
-		destination.count = destination.countCards();
 	}
 
 	/* DO THIS:
 	 * moveTo: Given a Card x, it finds the card on this list and
 	 *         moves it to the front of the destination list.
-	 * 
+	 *         Returns false in O(1) when there is no such card, otherwise
+	 *         walks the list to the first one.
 	 */
 	public boolean moveTo(Card x,CardList destination) {
+		if (!containsExact(x)) {
+			return false;
+		}
 		Card temp = this.first;
 		Card prev = null;
 		if (temp != null && temp.matches(true, x)) {
-			this.first = temp.getNext();
-			destination.first = temp;
-			this.count = this.countCards();
-			destination.count = destination.countCards();
+			moveTo(destination);
 			return true;
 		}
 		while (temp != null && !temp.matches(true, x)) {
@@ -147,12 +235,14 @@ public class CardList {
 			return false;
 		} else {
 			prev.setNext(temp.getNext());
-			temp.setNext(destination.first);
-			destination.first = temp;
-			this.count = this.countCards();
-			destination.count = destination.countCards();
+			if (temp == this.last) {
+				this.last = prev;
+			}
+			this.count--;
+			index(temp, -1);
+			destination.add(temp);
 			return true;
-	}
+		}
 	}
 
 		
@@ -162,11 +252,12 @@ public class CardList {
 	 *          first card of this to the first list, and then 
 	 *          the next one to the second list,
 	 *          finally, concatenate the two lists to this. 
+	 *          Stops early when this runs out of cards.
 	 */
 	public void shuffle(int split) {
 		CardList list1 = new CardList(false);
 		CardList list2 = new CardList(false);
-		while (split > 0) {
+		while (split > 0 && this.first != null) {
 			this.moveTo(list1);
 			this.moveTo(list2);
 			split--;
@@ -175,13 +266,50 @@ public class CardList {
 		this.concatenateWith(list1);
 	}
 	
+	/*
+	 * shuffle: Fisher-Yates shuffle, every order of the cards is equally
+	 *          likely (as far as rand is). The cards are copied into an
+	 *          array that is kept for the next call, shuffled there, and
+	 *          linked back together in one pass.
+	 */
+	public void shuffle(java.util.random.RandomGenerator rand) {
+		if (scratch == null || scratch.length < count) {
+			scratch = new Card[Math.max(count, 16)];
+		}
+		int n = 0;
+		for (Card current = this.first; current != null; current = current.getNext()) {
+			scratch[n++] = current;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			int j = rand.nextInt(i + 1);
+			Card temp = scratch[i];
+			scratch[i] = scratch[j];
+			scratch[j] = temp;
+		}
+		for (int i = 0; i < n - 1; i++) {
+			scratch[i].setNext(scratch[i + 1]);
+		}
+		if (n > 0) {
+			this.first = scratch[0];
+			this.last = scratch[n - 1];
+			this.last.setNext(null);
+		}
+		java.util.Arrays.fill(scratch, 0, n, null);
+	}
+	
 	/* DO THIS:
 	 * search: return a card that matches either the number or color
 	 *         of the given card x.
 	 *         You must use the matches(false,x) method that you wrote for the
 	 *         Card class.
+	 *         The index answers in O(1) when there is no such card; when
+	 *         there is, the list is walked to the first one, since callers
+	 *         (Strategies.FIRST, for one) rely on getting the first.
 	 */
 	public Card search(Card x) {
+		if (!hasMatch(x)) {
+			return null;
+		}
 		Card current = this.first;
 		while (current != null) {
 			if (x.matches(false, current)) {
@@ -197,8 +325,13 @@ public class CardList {
 	/* DO THIS:
 	 * getCard: returns a Card in this list that matches exactly
 	 *          (use matches(true,card) method in Card) the given card
+	 *          null in O(1) when there is none, otherwise the list is
+	 *          walked to the first one
 	 */
 	public Card getCard(Card card) {
+		if (!containsExact(card)) {
+			return null;
+		}
 		Card current = this.first;
 		while (current != null) {
 			if (card.matches(true, current)) {
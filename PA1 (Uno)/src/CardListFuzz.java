@@ -0,0 +1,148 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/*
+ * CardListFuzz: runs random sequences of CardList operations and checks
+ * every list against a simple ArrayList model after each step: the cards
+ * (number and color, in order), size() against a walk of the list, and
+ * getLast() against the card the walk ends on, and the hand index
+ * (hasMatch, containsExact, countColor, countNumber) against a scan of
+ * the model for every one of the 40 kinds of card. The model does what the original CardList methods did,
+ * one card at a time, so any difference is a bookkeeping bug.
+ *
+ * usage: java CardListFuzz [steps] [seed]
+ */
+public class CardListFuzz {
+
+	private static final int LISTS=4;
+
+	public static void main(String[] args) {
+		int steps=args.length>0 ? Integer.parseInt(args[0]) : 1000000;
+		long seed=args.length>1 ? Long.parseLong(args[1]) : 1;
+		SplittableRandom rand=new SplittableRandom(seed);
+
+		CardList[] lists=new CardList[LISTS];
+		ArrayList<ArrayList<String>> model=new ArrayList<ArrayList<String>>();
+		for (int i=0;i<LISTS;i++) {
+			lists[i]=new CardList(i==0);
+			model.add(toModel(lists[i]));
+		}
+
+		for (int step=0;step<steps;step++) {
+			int a=rand.nextInt(LISTS);
+			int b=rand.nextInt(LISTS-1);
+			if (b>=a) b++;
+			ArrayList<String> from=model.get(a);
+			ArrayList<String> to=model.get(b);
+			switch (rand.nextInt(6)) {
+			case 0:
+				lists[a].moveTo(lists[b]);
+				if (!from.isEmpty())
+					to.add(0,from.remove(0));
+				break;
+			case 1: {
+				int num=rand.nextInt(Math.max(from.size(),1)+1);
+				num=Math.min(num,from.size());
+				lists[a].moveTo(num,lists[b]);
+				for (int i=0;i<num;i++)
+					to.add(0,from.remove(0));
+				break;
+			}
+			case 2: {
+				Card x=new Card(rand.nextInt(10),Card.Colors.values()[rand.nextInt(4)],null);
+				boolean moved=lists[a].moveTo(x,lists[b]);
+				int i=from.indexOf(key(x));
+				if (moved!=(i>=0))
+					throw new IllegalStateException("step "+step+": moveTo(Card) returned "+moved);
+				if (i>=0)
+					to.add(0,from.remove(i));
+				break;
+			}
+			case 3:
+				// the appended list is left empty
+				lists[a].concatenateWith(lists[b]);
+				from.addAll(to);
+				to.clear();
+				break;
+			case 4: {
+				int split=rand.nextInt(from.size()+2);
+				lists[a].shuffle(split);
+				ArrayList<String> l1=new ArrayList<String>();
+				ArrayList<String> l2=new ArrayList<String>();
+				for (int i=0;i<split && !from.isEmpty();i++) {
+					l1.add(0,from.remove(0));
+					if (!from.isEmpty())
+						l2.add(0,from.remove(0));
+				}
+				from.addAll(l1);
+				from.addAll(l2);
+				break;
+			}
+			default: {
+				// refill an empty list now and then so cards keep moving
+				int total=0;
+				for (ArrayList<String> m : model)
+					total+=m.size();
+				if (from.isEmpty() && total<200) {
+					lists[a]=new CardList(true);
+					model.set(a,toModel(lists[a]));
+				}
+				break;
+			}
+			}
+			for (int i=0;i<LISTS;i++)
+				check(step,i,lists[i],model.get(i));
+		}
+		System.out.println(steps+" steps, all lists match the model");
+	}
+
+	private static void check(int step,int i,CardList list,ArrayList<String> expected) {
+		ArrayList<String> actual=toModel(list);
+		if (!actual.equals(expected))
+			throw new IllegalStateException("step "+step+", list "+i+": "+actual+" expected "+expected);
+		if (list.size()!=actual.size())
+			throw new IllegalStateException("step "+step+", list "+i+": size() "+list.size()+", "+actual.size()+" cards");
+		Card last=null;
+		for (Card c=list.getFirst();c!=null;c=c.getNext())
+			last=c;
+		if (list.getLast()!=last)
+			throw new IllegalStateException("step "+step+", list "+i+": getLast() is not the last card");
+		for (Card.Colors color : Card.Colors.values()) {
+			for (int number=0;number<=9;number++) {
+				Card x=new Card(number,color,null);
+				boolean exact=expected.contains(key(x));
+				boolean partial=false;
+				for (String k : expected)
+					partial|=k.charAt(0)-'0'==number || k.charAt(1)==color.name().charAt(0);
+				if (list.containsExact(x)!=exact || list.hasMatch(x)!=partial)
+					throw new IllegalStateException("step "+step+", list "+i+": index wrong for "+key(x));
+			}
+			int n=0;
+			for (String k : expected)
+				if (k.charAt(1)==color.name().charAt(0)) n++;
+			if (list.countColor(color)!=n)
+				throw new IllegalStateException("step "+step+", list "+i+": countColor("+color+") "+list.countColor(color)+", expected "+n);
+		}
+		for (int number=0;number<=9;number++) {
+			int n=0;
+			for (String k : expected)
+				if (k.charAt(0)-'0'==number) n++;
+			if (list.countNumber(number)!=n)
+				throw new IllegalStateException("step "+step+", list "+i+": countNumber("+number+") "+list.countNumber(number)+", expected "+n);
+		}
+	}
+
+	private static ArrayList<String> toModel(CardList list) {
+		ArrayList<String> cards=new ArrayList<String>();
+		for (Card c=list.getFirst();c!=null;c=c.getNext()) {
+			cards.add(key(c));
+			if (cards.size()>10000)
+				throw new IllegalStateException("cycle in list");
+		}
+		return cards;
+	}
+
+	private static String key(Card c) {
+		return c.getNumber()+""+c.getColor().name().charAt(0);
+	}
+}
@@ -0,0 +1,274 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/*
+ * GameLog: an append-only record of what happens in Play games, written
+ * to a file through a buffered FileChannel. A Play made with
+ * Play(seed, log) writes its events as it goes; GameReplay reads them
+ * back and rebuilds the game at any point.
+ *
+ * File: the 5 byte header "UNOL" + version when the file is new, then
+ * events, one game after another. Cards are written as their kind
+ * (color*10+number, see UnoState). The events that happen every turn
+ * are one byte, two bits of type and the kind:
+ *     00kkkkkk  the human plays card k
+ *     01kkkkkk  the computer plays card k from its hand
+ *     10kkkkkk  the human takes card k from the deck
+ *     11kkkkkk  the computer takes card k from the deck; if k matches
+ *               the top card it goes to the game pile, else to its hand
+ * The rest are a tag byte in the range no card event uses:
+ *     DEAL     seed (8 bytes)    a new game, Play(seed, log): the two
+ *                                decks shuffled by SplittableRandom(seed)
+ *                                and dealt
+ *     RECYCLE                    moveToDeck, shuffling with the same
+ *                                generator
+ *     END      outcome (1 byte)  see Simulator.HUMAN_WON ...
+ * The shuffles are not written out, only where they start from: Play
+ * uses its generator for nothing else, so the replay does them again,
+ * and every card taken from the deck is in the log to check them by.
+ * A log is not shared between threads; give each thread its own file.
+ */
+public class GameLog implements AutoCloseable {
+
+	public static final int MAGIC=0x554e4f4c;	// "UNOL"
+	public static final int VERSION=1;
+	public static final int DEAL=0x28;
+	public static final int RECYCLE=0x29;
+	public static final int END=0x2a;
+	public static final int HUMAN_PLAY=0x00;
+	public static final int COMPUTER_PLAY=0x40;
+	public static final int HUMAN_DRAW=0x80;
+	public static final int COMPUTER_DRAW=0xc0;
+
+	private FileChannel channel;
+	// events are put into bytes by hand, which is cheaper per byte than
+	// a ByteBuffer, and written out through buffer, which wraps it
+	private byte[] bytes=new byte[1<<16];
+	private ByteBuffer buffer=ByteBuffer.wrap(bytes);
+	private int size;
+	private long written;	// bytes flushed to the file by this log
+
+	public GameLog(String file) throws IOException {
+		channel=FileChannel.open(Paths.get(file),StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,StandardOpenOption.APPEND);
+		if (channel.size()==0) {
+			buffer.putInt(MAGIC);
+			buffer.put((byte) VERSION);
+			size=buffer.position();
+		}
+	}
+
+	public long position() {
+		// number of bytes this log has written so far
+		return written+size;
+	}
+
+	public void deal(long seed) {
+		room(9);
+		bytes[size]=(byte) DEAL;
+		buffer.putLong(size+1,seed);
+		size+=9;
+	}
+
+	public void recycle() {
+		room(1);
+		bytes[size++]=(byte) RECYCLE;
+	}
+
+	public void end(int outcome) {
+		room(2);
+		bytes[size++]=(byte) END;
+		bytes[size++]=(byte) outcome;
+	}
+
+	public void play(boolean computer,Card card) {
+		if (size==bytes.length)
+			flush();
+		bytes[size++]=(byte) ((computer ? COMPUTER_PLAY : HUMAN_PLAY)|card.getKind());
+	}
+
+	public void draw(boolean computer,Card card) {
+		if (size==bytes.length)
+			flush();
+		bytes[size++]=(byte) ((computer ? COMPUTER_DRAW : HUMAN_DRAW)|card.getKind());
+	}
+
+	private void room(int n) {
+		if (bytes.length-size<n)
+			flush();
+	}
+
+	public void flush() {
+		// writes the buffered events to the file (not forced to disk)
+		buffer.position(0).limit(size);
+		try {
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		buffer.clear();
+		written+=size;
+		size=0;
+	}
+
+	public void close() throws IOException {
+		flush();
+		channel.close();
+	}
+
+	/*
+	 * main: logs simulated games and checks that GameReplay rebuilds
+	 *       every state they went through, and that a Play taken from
+	 *       the middle of a replay finishes the game the same way; then
+	 *       measures what logging costs the Simulator
+	 *
+	 * usage: java GameLog [file] [games] [seed]
+	 */
+	public static void main(String[] args) throws IOException {
+		String file=args.length>0 ? args[0] : "games.log";
+		int games=args.length>1 ? Integer.parseInt(args[1]) : 2000;
+		long seed=args.length>2 ? Long.parseLong(args[2]) : 50;
+		java.nio.file.Files.deleteIfExists(Paths.get(file));
+		java.util.SplittableRandom rand=new java.util.SplittableRandom(seed);
+
+		// play, remembering the lists after every turn and how many
+		// bytes of the game had been logged by then
+		ArrayList<ArrayList<String>> states=new ArrayList<ArrayList<String>>();
+		ArrayList<ArrayList<Long>> marks=new ArrayList<ArrayList<Long>>();
+		GameLog log=new GameLog(file);
+		for (int g=0;g<games;g++) {
+			long first=log.position();
+			Play play=new Play(rand.nextLong(),log);
+			ArrayList<String> s=new ArrayList<String>();
+			ArrayList<Long> m=new ArrayList<Long>();
+			s.add(snapshot(play));
+			m.add(log.position()-first);
+			int outcome=Simulator.UNFINISHED;
+			for (int turn=0;turn<Simulator.MAX_TURNS;turn++) {
+				boolean over=turn(play);
+				s.add(snapshot(play));
+				m.add(log.position()-first);
+				if (over) {
+					outcome=play.getHuman().size()==0 ? Simulator.HUMAN_WON : Simulator.COMPUTER_WON;
+					break;
+				}
+			}
+			log.end(outcome);
+			states.add(s);
+			marks.add(m);
+		}
+		log.close();
+		long bytes=java.nio.file.Files.size(Paths.get(file));
+
+		GameReplay.Reader logged=new GameReplay.Reader(file);
+		long events=0;
+		for (int g=0;g<games;g++) {
+			byte[] game=logged.next();
+			if (game==null)
+				throw new IllegalStateException(g+" games in the log, "+games+" played");
+			GameReplay r=new GameReplay(game);
+			ArrayList<String> s=states.get(g);
+			ArrayList<Long> m=marks.get(g);
+			for (int i=0;i<s.size();i++) {
+				while (r.offset()<m.get(i))
+					r.next();
+				if (!r.toString().equals(s.get(i)))
+					throw new IllegalStateException("game "+g+" after "+r.position()+" events:\n"+r+"\nexpected\n"+s.get(i));
+				if (i==0 && !snapshot(new Play(r.getSeed(),null)).equals(s.get(0)))
+					throw new IllegalStateException("game "+g+": Play(seed) deals a different game");
+				if (i==s.size()/2) {
+					Play rest=r.toPlay();
+					for (int j=i+1;j<s.size();j++)
+						turn(rest);
+					if (!snapshot(rest).equals(s.get(s.size()-1)))
+						throw new IllegalStateException("game "+g+": played on from turn "+i+" it ends differently");
+				}
+			}
+			while (r.hasNext())
+				r.next();
+			events+=r.position();
+		}
+		if (logged.next()!=null)
+			throw new IllegalStateException("more games in the log than the "+games+" played");
+		logged.close();
+		System.out.printf("%d games, %d events, %d bytes (%.1f per game): every state replays exactly%n",
+				games,events,bytes,bytes/(double) games);
+
+		// Simulator with and without the log on the same games, taking
+		// turns at going first, after a few rounds to warm up; the log
+		// goes to a scratch file next to file. Prints the medians.
+		int n=20000;
+		int rounds=41;
+		int warmup=5;
+		String scratch=file+".tmp";
+		double[] without=new double[rounds];
+		double[] with=new double[rounds];
+		double[] overhead=new double[rounds];
+		for (int round=-warmup;round<rounds;round++) {
+			long games0=rand.nextLong();
+			double a,b;
+			if ((round&1)==0) {
+				a=time(games0,n,null);
+				b=time(games0,n,scratch);
+			} else {
+				b=time(games0,n,scratch);
+				a=time(games0,n,null);
+			}
+			if (round>=0) {
+				without[round]=a;
+				with[round]=b;
+				overhead[round]=b/a-1;
+			}
+		}
+		java.util.Arrays.sort(without);
+		java.util.Arrays.sort(with);
+		java.util.Arrays.sort(overhead);
+		System.out.printf("without log %.0f games/s, with log %.0f games/s, overhead %+.1f%% (median of %d rounds of %d games)%n",
+				1e9/without[rounds/2],1e9/with[rounds/2],100*overhead[rounds/2],rounds,n);
+	}
+
+	private static double time(long seed,int n,String file) throws IOException {
+		// ns per game of n Simulator games of Strategies.FIRST, seeded
+		// from seed, logged to file unless it is null
+		Strategy first=Strategies.FIRST;
+		Simulator.Results results=new Simulator.Results();
+		java.util.SplittableRandom rand=new java.util.SplittableRandom(seed);
+		long t0=System.nanoTime();
+		if (file==null) {
+			for (int i=0;i<n;i++)
+				Simulator.playGame(first,first,new java.util.SplittableRandom(rand.nextLong()),results,null);
+		} else {
+			GameLog log=new GameLog(file);
+			for (int i=0;i<n;i++)
+				Simulator.playGame(first,first,rand,results,log);
+			log.close();
+		}
+		long t1=System.nanoTime();
+		if (file!=null)
+			java.nio.file.Files.delete(Paths.get(file));
+		return (t1-t0)/(double) n;
+	}
+
+	private static boolean turn(Play play) {
+		// one turn of Strategies.COLOR against computer level 1, true
+		// when it ends the game
+		int state=play.getState();
+		if (state==play.HUMAN_TURN)
+			play.human_turn(Strategies.COLOR.choose(play,play.getHuman()));
+		else if (state==play.HUMAN_TURN_NO_MOVES)
+			play.human_turn(null);
+		else
+			play.computer_turn();
+		return play.getHuman().size()==0 || play.getComputer().size()==0;
+	}
+
+	private static String snapshot(Play play) {
+		return GameReplay.show(play.getDeck(),play.getHuman(),play.getComputer(),play.getGame(),play.getState());
+	}
+}
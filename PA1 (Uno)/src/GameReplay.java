@@ -0,0 +1,289 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/*
+ * GameReplay: rebuilds a game written by GameLog, one event at a time.
+ *
+ * The replay shuffles the way Play does, with a generator made from the
+ * seed of the DEAL event, and takes the moves from the log, so it has
+ * the same lists, in the same order, as the logged game had after the
+ * same number of events. Every card taken from the deck is checked
+ * against the top of the replayed one, so a log that does not fit the
+ * shuffle any more (CardList.shuffle has changed, say) fails at the
+ * first card taken instead of giving a different game. toPlay hands out
+ * a Play in the replayed state, to look at or to go on playing from.
+ *
+ * usage: java GameReplay file [game] [events]
+ *     lists the games in file, or prints the events of one game and its
+ *     state after the given number of events (all of them by default)
+ */
+public class GameReplay {
+
+	private byte[] events;
+	private int pos;	// offset of the next event
+	private int count;	// events replayed
+	private long seed;
+	private SplittableRandom rand;
+	private int outcome=-1;
+	private CardList deck=new CardList(false);
+	private CardList human=new CardList(false);
+	private CardList computer=new CardList(false);
+	private CardList game=new CardList(false);
+	private int state;
+
+	public GameReplay(byte[] events) {
+		// events of one game, as returned by Reader.next
+		this.events=events;
+	}
+
+	/*
+	 * Reader: the games of a log file, one at a time. The file is read
+	 *         through a small buffer, so a log of any size can be
+	 *         replayed without holding more than one game in memory.
+	 */
+	public static class Reader implements AutoCloseable {
+		private FileChannel channel;
+		private ByteBuffer buffer=ByteBuffer.allocate(1<<16);
+		private byte[] game=new byte[1<<10];
+		private int size;
+		private String file;
+
+		public Reader(String file) throws IOException {
+			this.file=file;
+			channel=FileChannel.open(Paths.get(file),StandardOpenOption.READ);
+			buffer.flip();
+			if (!fill(5) || buffer.getInt()!=GameLog.MAGIC || buffer.get()!=GameLog.VERSION) {
+				channel.close();
+				throw new IOException(file+" is not a game log");
+			}
+		}
+
+		/*
+		 * next: the events of the next game, from its DEAL event up to
+		 *       the next one, or null after the last game; anything
+		 *       before the first DEAL is skipped
+		 */
+		public byte[] next() throws IOException {
+			size=0;
+			while (fill(1)) {
+				int b=buffer.get(buffer.position())&0xff;
+				if (b==GameLog.DEAL && size>0)
+					break;
+				int n=length(b);
+				if (!fill(n))
+					throw new IOException(file+" ends in the middle of an event");
+				if (size==0 && b!=GameLog.DEAL) {
+					buffer.position(buffer.position()+n);
+					continue;
+				}
+				if (size+n>game.length)
+					game=java.util.Arrays.copyOf(game,2*game.length);
+				buffer.get(game,size,n);
+				size+=n;
+			}
+			return size==0 ? null : java.util.Arrays.copyOf(game,size);
+		}
+
+		private boolean fill(int n) throws IOException {
+			// true once at least n bytes are buffered, false at the end of the file
+			if (buffer.remaining()>=n)
+				return true;
+			buffer.compact();
+			while (buffer.position()<n && channel.read(buffer)>=0)
+				;
+			buffer.flip();
+			return buffer.remaining()>=n;
+		}
+
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	private static int length(int tag) {
+		// the number of bytes of an event that starts with tag
+		switch (tag) {
+		case GameLog.DEAL:
+			return 9;
+		case GameLog.END:
+			return 2;
+		}
+		return 1;
+	}
+
+	public boolean hasNext() {
+		return pos<events.length;
+	}
+
+	public int position() {
+		// the number of events replayed so far
+		return count;
+	}
+
+	public int offset() {
+		// the number of bytes of the game replayed so far
+		return pos;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getOutcome() {
+		// the outcome of the END event, -1 before it
+		return outcome;
+	}
+
+	public int getState() {
+		return state;
+	}
+
+	/*
+	 * next: replays one event, with the rules of Play.human_turn,
+	 *       computer_turn and moveToDeck, and returns its description.
+	 *       Throws IllegalStateException if the event cannot have happened.
+	 */
+	public String next() {
+		int b=events[pos]&0xff;
+		String done;
+		switch (b) {
+		case GameLog.DEAL:
+			seed=ByteBuffer.wrap(events,pos+1,8).getLong();
+			rand=new SplittableRandom(seed);
+			deck=new CardList(true);
+			deck.concatenateWith(new CardList(true));
+			deck.shuffle(rand);
+			deck.moveTo(7,human);
+			deck.moveTo(7,computer);
+			deck.moveTo(1,game);
+			state=human.hasMatch(game.getFirst()) ? UnoState.HUMAN_TURN : UnoState.HUMAN_TURN_NO_MOVES;
+			done="deal, seed "+seed+", top card "+name(game.getFirst());
+			break;
+		case GameLog.RECYCLE: {
+			if (game.size()==0)
+				throw new IllegalStateException("event "+count+": recycle before the deal");
+			CardList empty=deck;
+			game.concatenateWith(deck);
+			deck=game;
+			game=empty;
+			deck.moveTo(1,game);
+			deck.shuffle(rand);
+			done="recycle, deck has "+deck.size()+" cards";
+			break;
+		}
+		case GameLog.END:
+			outcome=events[pos+1];
+			done="end, outcome "+outcome;
+			break;
+		default: {
+			Card card=UnoState.card(b&63);
+			switch (b&0xc0) {
+			case GameLog.HUMAN_PLAY:
+				if (!human.moveTo(card,game))
+					throw new IllegalStateException("event "+count+": human has no "+name(card));
+				state=computer.hasMatch(card) ? UnoState.COMPUTER_TURN : UnoState.COMPUTER_TURN_NO_MOVES;
+				done="human plays "+name(card);
+				break;
+			case GameLog.COMPUTER_PLAY:
+				if (!computer.moveTo(card,game))
+					throw new IllegalStateException("event "+count+": computer has no "+name(card));
+				state=human.hasMatch(card) ? UnoState.HUMAN_TURN : UnoState.HUMAN_TURN_NO_MOVES;
+				done="computer plays "+name(card);
+				break;
+			case GameLog.HUMAN_DRAW:
+				take(card,human);
+				state=human.hasMatch(game.getFirst()) ? UnoState.HUMAN_TURN : UnoState.HUMAN_TURN_NO_MOVES;
+				done="human takes "+name(card);
+				break;
+			default:
+				if (card.matches(false,game.getFirst())) {
+					take(card,game);
+					state=human.hasMatch(card) ? UnoState.HUMAN_TURN : UnoState.HUMAN_TURN_NO_MOVES;
+					done="computer takes and plays "+name(card);
+				} else {
+					take(card,computer);
+					done="computer takes "+name(card);
+				}
+			}
+		}
+		}
+		pos+=length(b);
+		count++;
+		return done;
+	}
+
+	private void take(Card card,CardList to) {
+		Card first=deck.getFirst();
+		if (first==null || !first.matches(true,card))
+			throw new IllegalStateException("event "+count+": "+name(card)+" is not on top of the deck");
+		deck.moveTo(to);
+	}
+
+	private static String name(Card c) {
+		return c.getNumber()+""+c.getColor().name().charAt(0);
+	}
+
+	public static String show(CardList list) {
+		StringBuilder sb=new StringBuilder();
+		for (Card c=list.getFirst();c!=null;c=c.getNext())
+			sb.append(name(c)).append(' ');
+		return sb.toString().trim();
+	}
+
+	public String toString() {
+		return show(deck,human,computer,game,state);
+	}
+
+	public static String show(CardList deck,CardList human,CardList computer,CardList game,int state) {
+		return "deck:     "+show(deck)+"\nhuman:    "+show(human)+"\ncomputer: "+show(computer)
+				+"\ngame:     "+show(game)+"\nstate "+state;
+	}
+
+	/*
+	 * toPlay: a Play in the replayed state whose generator is where the
+	 *         logged game's was, so given the same moves it goes on
+	 *         exactly as the logged game did. It replays the game again
+	 *         up to here to get its own lists and generator.
+	 */
+	public Play toPlay() {
+		GameReplay r=new GameReplay(events);
+		while (r.pos<pos)
+			r.next();
+		return new Play(r.deck,r.human,r.computer,r.game,r.state,r.rand);
+	}
+
+	public static void main(String[] args) throws IOException {
+		try (Reader games=new Reader(args[0])) {
+			byte[] events;
+			if (args.length<2) {
+				long g=0;
+				while ((events=games.next())!=null) {
+					GameReplay r=new GameReplay(events);
+					while (r.hasNext())
+						r.next();
+					System.out.println("game "+g+": seed "+r.getSeed()+", "+r.position()+" events, outcome "+r.getOutcome());
+					g++;
+				}
+				System.out.println(g+" games");
+				return;
+			}
+			long wanted=Long.parseLong(args[1]);
+			events=games.next();
+			for (long g=0;g<wanted && events!=null;g++)
+				events=games.next();
+			if (events==null) {
+				System.out.println("no game "+wanted+" in "+args[0]);
+				return;
+			}
+			GameReplay r=new GameReplay(events);
+			int n=args.length>2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+			while (r.hasNext() && r.position()<n)
+				System.out.println(r.position()+": "+r.next());
+			System.out.println(r);
+		}
+	}
+}
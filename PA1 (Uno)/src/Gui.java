@@ -3,6 +3,8 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @SuppressWarnings("serial")
 public class Gui extends JFrame{
@@ -14,22 +16,58 @@ public class Gui extends JFrame{
 	boolean pressed=false;
 	String action="";
 	Play myPlay;
-	Timer t;
 	int start=0;
+	// the computer's turns run on this thread, so a slow computer level
+	// does not freeze the window; busy is only used on the event thread
+	// and is true while a turn is running, the Play is not touched then
+	ExecutorService turns=Executors.newSingleThreadExecutor(r -> {
+		Thread thread=new Thread(r,"computer turn");
+		thread.setDaemon(true);
+		return thread;
+	});
+	boolean busy=false;
+	int delay;	// shortest time a computer turn takes in ms, 0 for none
+	// what each button shows now: showCards only touches the buttons
+	// whose text or colors change, so only those are repainted
+	String shownText[][] = new String[6][10];
+	Color shownBG[][] = new Color[6][10];
+	Color shownFG[][] = new Color[6][10];
+	static final Font CARD_FONT=new Font("Arial", Font.PLAIN, 20);
+	static final Font COUNT_FONT=new Font("Arial", Font.PLAIN, 16);
+	static final Font DECK_FONT=new Font("Arial", Font.PLAIN, 14);
+	static final Font MESSAGE_FONT=new Font("Arial", Font.PLAIN, 30);
+	static final Font STATUS_FONT=new Font("Arial", Font.PLAIN, 20);
+	// with timing on, every action prints how long showCards took, how
+	// many buttons it changed and how long Swing took to paint the cards
+	boolean timing;
+	int changed;
+	long paintNanos, reportedNanos;
 	
 	    public Gui(){
+	    	this(Play.LEVEL_FIRST,2000,false);
+	    }
+	    
+	    public Gui(int level,int delay,boolean timing){
+	    	this.delay=delay;
+	    	this.timing=timing;
 			setTitle("UNO");
 			setSize(600,600);
 			setLocation(200,200);
 			setDefaultCloseOperation(EXIT_ON_CLOSE);
 	
 			Container unoContentPane = getContentPane();
-			cardPanel = new JPanel();
+			cardPanel = new JPanel() {
+				protected void paintChildren(Graphics g) {
+					long t0=System.nanoTime();
+					super.paintChildren(g);
+					paintNanos+=System.nanoTime()-t0;
+				}
+			};
 			cardPanel.setLayout(new GridLayout(5,9));
 			for (int i=1;i<=5;i++) {
 				for (int j=1;j<=9;j++) {
 					cardButton[i][j] = new JButton("");
-					cardButton[i][j].setFont(new Font("Arial", Font.PLAIN, 20));
+					cardButton[i][j].setFont(CARD_FONT);
 					if (i==5 || (i==3 && j==3)) {
 						cardButton[i][j].addActionListener(new ActionListener(){
 							public void actionPerformed(ActionEvent e){
@@ -48,8 +86,8 @@ public class Gui extends JFrame{
 				}
 			}
 		
-			cardButton[1][1].setFont(new Font("Arial", Font.PLAIN, 16));
-			cardButton[3][3].setFont(new Font("Arial", Font.PLAIN, 14));
+			cardButton[1][1].setFont(COUNT_FONT);
+			cardButton[3][3].setFont(DECK_FONT);
 			unoContentPane.add(cardPanel);
 
 			displayField = new JTextField();
@@ -59,7 +97,7 @@ public class Gui extends JFrame{
 			displayField.setHorizontalAlignment(JTextField.CENTER);
 			displayField.setEditable(false);
 			displayField.setColumns(8);
-			displayField.setFont(new Font("Arial", Font.PLAIN, 30));
+			displayField.setFont(MESSAGE_FONT);
 
 			displayField2 = new JTextField();
 			unoContentPane.add(displayField2,BorderLayout.SOUTH);
@@ -68,15 +106,10 @@ public class Gui extends JFrame{
 			displayField2.setHorizontalAlignment(JTextField.CENTER);
 			displayField2.setEditable(false);
 			displayField2.setColumns(8);
-			displayField2.setFont(new Font("Arial", Font.PLAIN, 20));
-			
-			t = new javax.swing.Timer(2000, new ActionListener() {
-		          public void actionPerformed(ActionEvent e) {
-		        	  spacePressedAct(e);
-		          }
-		       });
+			displayField2.setFont(STATUS_FONT);
 			
 			myPlay=new Play();
+			myPlay.setLevel(level);
 			showCards();
 			displayMessage("Your Turn",Color.BLACK,Color.WHITE);
 			setVisible(true);
@@ -84,8 +117,13 @@ public class Gui extends JFrame{
 	    }
 
 	    public void cardPressedAct(ActionEvent e) {
+	    	if (busy) {
+	    		// the computer is playing, the Play belongs to its thread
+	    		return;
+	    	}
 	    	action=e.getActionCommand();
     		int state=myPlay.getState();
+    		boolean computer=false;
 	    	if (myPlay.getComputer().size()==0) {
     			displayMessage("Y O U      L O S T",Color.WHITE,Color.RED);	    		
 	    	}
@@ -114,7 +152,7 @@ public class Gui extends JFrame{
 	    			state=myPlay.getState();
 	    			if (state==myPlay.COMPUTER_TURN || state==myPlay.COMPUTER_TURN_NO_MOVES) {
 	    				displayMessage("Computer Thinking...",Color.BLACK,Color.GREEN);
-	    				t.start();
+	    				computer=true;
 	    			}
 	    			else if (state==myPlay.HUMAN_TURN){
 	    				displayMessage("Your Turn: Pick a different card",Color.WHITE,Color.RED);	    			
@@ -125,9 +163,43 @@ public class Gui extends JFrame{
 	    		}
 	    	}
 			showCards();
+			if (computer)
+				startComputerTurn();
 	    }
 	   
-	    public void spacePressedAct(ActionEvent e) {
+	    public void startComputerTurn() {
+	    	// runs computer_turn on the turns thread, waits there until at
+	    	// least delay ms have passed, then shows the result on the
+	    	// event thread
+	    	busy=true;
+	    	turns.execute(() -> {
+	    		long t0=System.nanoTime();
+	    		RuntimeException error=null;
+	    		try {
+	    			if (myPlay.getComputer().size()>0 && myPlay.getHuman().size()>0)
+	    				myPlay.computer_turn();
+	    			long left=delay-(System.nanoTime()-t0)/1000000;
+	    			if (left>0)
+	    				Thread.sleep(left);
+	    		} catch (InterruptedException e) {
+	    			Thread.currentThread().interrupt();
+	    		} catch (RuntimeException e) {
+	    			error=e;
+	    		}
+	    		final RuntimeException failed=error;
+	    		SwingUtilities.invokeLater(() -> {
+	    			busy=false;
+	    			if (failed!=null)
+	    				displayMessage("Error: "+failed,Color.WHITE,Color.RED);
+	    			else
+	    				computerTurnDone();
+	    		});
+	    	});
+	    }
+	   
+	    public void computerTurnDone() {
+	    	// on the event thread, after the computer has played
+	    	showCards();
 	    	if (myPlay.getComputer().size()==0) {
     			displayMessage("Y O U      L O S T",Color.WHITE,Color.RED);	    		
 	    	}
@@ -135,8 +207,6 @@ public class Gui extends JFrame{
     			displayMessage("Y O U       W O N",Color.WHITE,Color.GREEN);	    		
 	    	}
 	    	else {
-	    		myPlay.computer_turn();
-	    		showCards();
 	    		int state=myPlay.getState();
 	    		if (state==myPlay.HUMAN_TURN) {
 	    			displayMessage("Your Turn",Color.BLACK,Color.WHITE);
@@ -148,7 +218,6 @@ public class Gui extends JFrame{
 	    	if (myPlay.getComputer().size()==0) {
     			displayMessage("Y O U      L O S T",Color.WHITE,Color.RED);	    		
 	    	}
-	    	t.stop();
 	    }
 
 	    public void leftCards() {
@@ -220,80 +289,106 @@ public class Gui extends JFrame{
 	    }
 
 	    public void displayMessage(String message,Color fgcolor,Color bgcolor) {
-	    	displayField.setText(message);
-	    	displayField.setBackground(bgcolor);
-	    	displayField.setForeground(fgcolor);
+	    	if (!message.equals(displayField.getText()))
+	    		displayField.setText(message);
+	    	if (!bgcolor.equals(displayField.getBackground()))
+	    		displayField.setBackground(bgcolor);
+	    	if (!fgcolor.equals(displayField.getForeground()))
+	    		displayField.setForeground(fgcolor);
+	    }
+	    
+	    public void setSlot(int i, int j, String text, Color bgcolor, Color fgcolor) {
+	    	// changes only what is different from what button i,j shows;
+	    	// a null fgcolor leaves the text color as it is
+	    	boolean change=false;
+	    	if (!text.equals(shownText[i][j])) {
+	    		cardButton[i][j].setText(text);
+	    		shownText[i][j]=text;
+	    		change=true;
+	    	}
+	    	if (bgcolor!=shownBG[i][j]) {
+	    		cardButton[i][j].setBackground(bgcolor);
+	    		shownBG[i][j]=bgcolor;
+	    		change=true;
+	    	}
+	    	if (fgcolor!=null && fgcolor!=shownFG[i][j]) {
+	    		cardButton[i][j].setForeground(fgcolor);
+	    		shownFG[i][j]=fgcolor;
+	    		change=true;
+	    	}
+	    	if (change)
+	    		changed++;
 	    }
 	    
 	    public void displayCard(int i, int j,Card c) {
-	    	cardButton[i][j].setText(""+c.getNumber()
-				+getColorChar(c.getColor()));
-	    	cardButton[i][j].setBackground(findBGColor(c.getColor()));
-	    	cardButton[i][j].setForeground(findFGColor(c.getColor()));
+	    	setSlot(i,j,c.getNumber()+getColorChar(c.getColor()),
+	    			findBGColor(c.getColor()),findFGColor(c.getColor()));
 	    }
 	    
-	    public void refreshCards() {
-	    	for (int i=0;i<=6;i++) {
-		    	cardButton[5][i+2].setText("");
-		    	cardButton[5][i+2].setBackground(Color.WHITE);
-	    		
-	    	}
+	    public void clearCard(int i, int j) {
+	    	setSlot(i,j,"",Color.WHITE,null);
 	    }
 	    
 	    public void displayComputerCard(int i, int j,Card c) {
-	    	cardButton[i][j].setText("??");
-	    	cardButton[i][j].setBackground(Color.BLACK);
-	    	cardButton[i][j].setForeground(Color.BLUE);
+	    	setSlot(i,j,"??",Color.BLACK,Color.BLUE);
 	    }
 
-	    public void refreshComputerCards() {
-	    	for (int i=0;i<=7;i++) {
-		    	cardButton[1][i+2].setText("");
-		    	cardButton[1][i+2].setBackground(Color.WHITE);
-	    		
-	    	}
-	    }
 	    public void showHumanCards() {
 	    	CardList human=myPlay.getHuman();
 	    	CardList game=myPlay.getGame();
-	    	refreshCards();
-			int count=0;
-			Card current=human.getFirst();		
-			while (current!=null && count-start<7) {
-				if (count-start>=0)
-					displayCard(5,count-start+2,current);
-				count++;
+	    	// skip to the first card shown, then fill the 7 slots
+			Card current=human.getFirst();
+			for (int count=0;current!=null && count<start;count++)
 				current=current.getNext();
+			for (int slot=0;slot<7;slot++) {
+				if (current!=null) {
+					displayCard(5,slot+2,current);
+					current=current.getNext();
+				}
+				else
+					clearCard(5,slot+2);
 			}
-			current=game.getFirst();
-			displayCard(3,5,current);
-			displayField2.setText("You have "+human.size()+" cards");
+			displayCard(3,5,game.getFirst());
+			String status="You have "+human.size()+" cards";
+			if (!status.equals(displayField2.getText()))
+				displayField2.setText(status);
 		}
 
 	    public void showComputerCards() {
 	    	CardList computer=myPlay.getComputer();
-	    	
-	    	cardButton[1][1].setText(""+computer.size());
-	    	refreshComputerCards();
-			int count=0;
-			Card current=computer.getFirst();		
-			while (current!=null && count<=7) {
-				displayComputerCard(1,count+2,current);
-				count++;
-				current=current.getNext();
-			}
+	    	setSlot(1,1,""+computer.size(),cardButton[1][1].getBackground(),null);
+	    	// the cards are hidden, so only how many to show matters
+	    	int count=Math.min(computer.size(),8);
+	    	for (int slot=0;slot<8;slot++) {
+	    		if (slot<count)
+	    			displayComputerCard(1,slot+2,null);
+	    		else
+	    			clearCard(1,slot+2);
+	    	}
 		}
 
 	    public void showCards() {
+	    	long t0=System.nanoTime();
+	    	changed=0;
 	    	showComputerCards();
 	    	showHumanCards();
 	    	CardList deck=myPlay.getDeck();
-	    	cardButton[3][3].setText("<html>Deck<BR>("+deck.size()+")</html>");
-	    	cardButton[3][3].setBackground(Color.GRAY);
-	    	cardButton[3][3].setForeground(Color.BLACK);
+	    	setSlot(3,3,"<html>Deck<BR>("+deck.size()+")</html>",Color.GRAY,Color.BLACK);
+	    	if (timing) {
+	    		long t1=System.nanoTime();
+	    		// the paint happens later on the event thread, so it is
+	    		// reported with the next action
+	    		System.out.printf("showCards %.3f ms, %d of 45 buttons changed, previous paint %.3f ms%n",
+	    				(t1-t0)/1e6,changed,(paintNanos-reportedNanos)/1e6);
+	    		reportedNanos=paintNanos;
+	    	}
 	    }
 	    
-		public static void main(String[] args) {						
-			new Gui();
+		public static void main(String[] args) {
+			// java Gui [computer level 1-3] [computer turn delay in ms] [-timing]
+			int level=args.length>0 ? Integer.parseInt(args[0]) : Play.LEVEL_FIRST;
+			int delay=args.length>1 ? Integer.parseInt(args[1]) : 2000;
+			boolean timing=args.length>2 && args[2].equals("-timing");
+			SwingUtilities.invokeLater(() -> new Gui(level,delay,timing));
 		}
 }
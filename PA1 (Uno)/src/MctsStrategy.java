@@ -0,0 +1,425 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/*
+ * MctsStrategy: picks a card by Monte Carlo tree search (level 3 of the
+ * computer player, see Play.setLevel).
+ *
+ * The player cannot see the other hand or the order of the deck, so every
+ * iteration starts from a determinization: the other hand is dealt again
+ * at random, with the same number of cards, from the cards it cannot see
+ * (other hand plus deck). The search is single observer information set
+ * MCTS: one tree whose nodes are the cards played (or DRAW) on the way
+ * down, shared by all determinizations; a child is only considered when
+ * its move is legal in the current determinization, and UCB uses the
+ * number of times it was available instead of the parent's visits. Each
+ * iteration adds one node and finishes the game with random legal moves
+ * on an UnoState, where drawing takes a random card of the deck.
+ *
+ * The search is root parallel: each thread grows its own tree from its
+ * own random generator, then the visits of the root moves are added up
+ * and the most visited card is played. All players share one pool with
+ * a thread per core, so games searching at the same time (a Tournament,
+ * say) split the cores between them instead of each bringing threads of
+ * its own.
+ *
+ * A move is searched either for a time budget or for a fixed number of
+ * iterations per tree. With a time budget the threads of a player are
+ * capped by the size of the pool, and each tree gets the whole budget
+ * from the moment it starts running, so a tree that waited for a busy
+ * pool is not cut short; the move then takes longer instead. With an
+ * iteration budget (withIterations) the result only depends on the
+ * player's generator and the number of trees, never on timing or on the
+ * machine, so games with the same seeds are played the same way.
+ */
+public class MctsStrategy implements Strategy {
+
+	public static final int DEFAULT_MILLIS=50;
+	public static final int DEFAULT_ITERATIONS=1000;	// per tree, for withIterations
+	private static final int DRAW=40;	// action of a player with no match
+	private static final int MAX_PLAYOUT=500;	// moves, then the game counts as a tie
+	private static final double C=0.7;	// exploration
+
+	private static final ForkJoinPool POOL=new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	private long budget;	// nanoseconds per move, or 0
+	private int iterations;	// per tree and move, or 0
+	private int threads;	// trees per search
+	private SplittableRandom rand;
+	private long playouts, nanos;	// totals, for playoutsPerSecond
+
+	public MctsStrategy() {
+		this(DEFAULT_MILLIS,Runtime.getRuntime().availableProcessors(),new SplittableRandom());
+	}
+
+	public MctsStrategy(int millis,int threads,SplittableRandom rand) {
+		// searches for millis a move on up to threads threads (at most
+		// one per core)
+		this.budget=millis*1000000L;
+		this.threads=Math.max(1,Math.min(threads,POOL.getParallelism()));
+		this.rand=rand;
+	}
+
+	private MctsStrategy(SplittableRandom rand,int iterations,int trees) {
+		this.iterations=iterations;
+		this.threads=trees;
+		this.rand=rand;
+	}
+
+	/*
+	 * withIterations: a player that grows trees trees of iterations
+	 *                 iterations each for every move, all seeded from
+	 *                 rand, so it plays the same way on every machine
+	 */
+	public static MctsStrategy withIterations(int iterations,int trees,SplittableRandom rand) {
+		if (iterations<1 || trees<1)
+			throw new IllegalArgumentException("need at least one tree and one iteration");
+		return new MctsStrategy(rand,iterations,trees);
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public synchronized double playoutsPerSecond() {
+		// playouts per second of running time of one tree, that is
+		// per thread, not counting time spent waiting for the pool
+		return nanos==0 ? 0 : playouts*1e9/nanos;
+	}
+
+	public synchronized long getPlayouts() {
+		return playouts;
+	}
+
+	public Card choose(Play play,CardList hand) {
+		UnoState state=UnoState.of(play);
+		int me=hand==play.getHuman() ? UnoState.HUMAN : UnoState.COMPUTER;
+		long moves=state.playable(me);
+		if (Long.bitCount(moves)<=1)
+			return hand.search(play.getGame().getFirst());
+		int kind=search(state,me);
+		return hand.getCard(UnoState.card(kind));
+	}
+
+	/*
+	 * search: the kind player me should play in state, which has to be
+	 *         me's turn with at least one matching card
+	 */
+	public int search(UnoState state,int me) {
+		ArrayList<Worker> workers=new ArrayList<Worker>();
+		synchronized (this) {
+			for (int t=0;t<threads;t++)
+				workers.add(new Worker(state,me,budget,iterations,rand.split()));
+		}
+		long[] visits=new long[DRAW+1];
+		long n=0;
+		long ran=0;
+		try {
+			java.util.List<Future<Node>> done=POOL.invokeAll(workers);
+			for (int t=0;t<threads;t++) {
+				Node root=done.get(t).get();
+				n+=root.visits;
+				ran+=workers.get(t).nanos;
+				for (Node c : root.children)
+					if (c!=null)
+						visits[c.action]+=c.visits;
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException("search failed",e);
+		}
+		synchronized (this) {
+			playouts+=n;
+			nanos+=ran;
+		}
+		int best=-1;
+		for (long m=state.playable(me);m!=0;m&=m-1) {
+			int k=Long.numberOfTrailingZeros(m);
+			if (best<0 || visits[k]>visits[best])
+				best=k;
+		}
+		return best;
+	}
+
+	private static class Node {
+		Node parent;
+		int action;
+		int player;	// who made the move that leads here
+		int visits, avail;
+		double wins;	// for player
+		Node[] children=new Node[DRAW+1];
+
+		Node(Node parent,int action,int player) {
+			this.parent=parent;
+			this.action=action;
+			this.player=player;
+		}
+	}
+
+	private static class Worker implements Callable<Node> {
+		private UnoState state;
+		private int me;
+		private long budget;
+		private int iterations;
+		private SplittableRandom rand;
+		long nanos;	// how long call ran, read after the search
+
+		Worker(UnoState state,int me,long budget,int iterations,SplittableRandom rand) {
+			this.state=state;
+			this.me=me;
+			this.budget=budget;
+			this.iterations=iterations;
+			this.rand=rand;
+		}
+
+		public Node call() {
+			// the budget counts from here, not from when the search was
+			// asked for, in case this waited in the pool's queue
+			long t0=System.nanoTime();
+			Node root=new Node(null,-1,me==UnoState.HUMAN ? UnoState.COMPUTER : UnoState.HUMAN);
+			UnoState s=new UnoState();
+			if (iterations>0) {
+				for (int i=0;i<iterations;i++) {
+					determinize(state,me,s,rand);
+					iterate(root,s,rand);
+				}
+			} else {
+				long deadline=t0+budget;
+				do {
+					determinize(state,me,s,rand);
+					iterate(root,s,rand);
+				} while (System.nanoTime()<deadline);
+			}
+			nanos=System.nanoTime()-t0;
+			return root;
+		}
+	}
+
+	/*
+	 * determinize: s becomes state with the other player's hand dealt
+	 *              again from the cards me cannot see
+	 */
+	static void determinize(UnoState state,int me,UnoState s,SplittableRandom rand) {
+		s.copyFrom(state);
+		int other=me==UnoState.HUMAN ? UnoState.COMPUTER : UnoState.HUMAN;
+		int n=s.size(other);
+		int turn=s.getState();
+		while (s.kinds(other)!=0)
+			s.apply(Long.numberOfTrailingZeros(s.kinds(other)),other,UnoState.DECK,turn);
+		for (int i=0;i<n;i++)
+			s.apply(s.sample(UnoState.DECK,rand),UnoState.DECK,other,turn);
+	}
+
+	private static void iterate(Node root,UnoState s,SplittableRandom rand) {
+		// selection and expansion
+		Node node=root;
+		int winner=winner(s);
+		while (winner<0) {
+			long legal=legal(s);
+			int mover=mover(s);
+			Node best=null;
+			double bestValue=-1;
+			long untried=0;
+			for (long m=legal;m!=0;m&=m-1) {
+				int a=Long.numberOfTrailingZeros(m);
+				Node c=node.children[a];
+				if (c==null) {
+					untried|=1L<<a;
+					continue;
+				}
+				c.avail++;
+				double value=c.wins/c.visits+C*Math.sqrt(Math.log(c.avail)/c.visits);
+				if (value>bestValue) {
+					bestValue=value;
+					best=c;
+				}
+			}
+			if (untried!=0) {
+				int a=pick(untried,rand);
+				best=new Node(node,a,mover);
+				best.avail=1;
+				node.children[a]=best;
+			}
+			if (!step(s,best.action,rand)) {
+				winner=0;
+				node=best;
+				break;
+			}
+			node=best;
+			winner=winner(s);
+			if (untried!=0)
+				break;
+		}
+		// playout
+		for (int moves=0;winner<0;moves++) {
+			if (moves==MAX_PLAYOUT || !step(s,pick(legal(s),rand),rand)) {
+				winner=0;
+				break;
+			}
+			winner=winner(s);
+		}
+		// backpropagation, a tie (winner 0) is half a win
+		for (;node!=null;node=node.parent) {
+			node.visits++;
+			node.wins+=winner==node.player ? 1 : winner==0 ? 0.5 : 0;
+		}
+	}
+
+	private static int pick(long m,SplittableRandom rand) {
+		for (int skip=rand.nextInt(Long.bitCount(m));skip>0;skip--)
+			m&=m-1;
+		return Long.numberOfTrailingZeros(m);
+	}
+
+	private static int winner(UnoState s) {
+		// HUMAN or COMPUTER when that hand is empty, -1 while the game goes on
+		if (s.size(UnoState.HUMAN)==0)
+			return UnoState.HUMAN;
+		if (s.size(UnoState.COMPUTER)==0)
+			return UnoState.COMPUTER;
+		return -1;
+	}
+
+	private static int mover(UnoState s) {
+		int turn=s.getState();
+		return turn==UnoState.HUMAN_TURN || turn==UnoState.HUMAN_TURN_NO_MOVES ? UnoState.HUMAN : UnoState.COMPUTER;
+	}
+
+	static long legal(UnoState s) {
+		// the kinds the player to move can play, or only DRAW
+		int turn=s.getState();
+		long m=0;
+		if (turn==UnoState.HUMAN_TURN)
+			m=s.playable(UnoState.HUMAN);
+		else if (turn==UnoState.COMPUTER_TURN)
+			m=s.playable(UnoState.COMPUTER);
+		return m==0 ? 1L<<DRAW : m;
+	}
+
+	/*
+	 * step: the move action of the player to move, with the rules of
+	 *       Play.human_turn and Play.computer_turn; returns false if the
+	 *       game is stuck because the deck ran out
+	 */
+	static boolean step(UnoState s,int action,SplittableRandom rand) {
+		int mover=mover(s);
+		int other=mover==UnoState.HUMAN ? UnoState.COMPUTER : UnoState.HUMAN;
+		if (action!=DRAW) {
+			s.apply(action,mover,UnoState.GAME,nextState(s,other,action));
+		} else if (mover==UnoState.HUMAN) {
+			// the human takes one card and plays again
+			if (s.size(UnoState.DECK)==0)
+				return false;
+			int d=s.sample(UnoState.DECK,rand);
+			boolean match=((s.kinds(UnoState.HUMAN)|1L<<d)&UnoState.matching(s.getTop()))!=0;
+			s.apply(d,UnoState.DECK,UnoState.HUMAN,match ? UnoState.HUMAN_TURN : UnoState.HUMAN_TURN_NO_MOVES);
+		} else {
+			// the computer takes cards until one matches and plays that one
+			while (true) {
+				if (s.size(UnoState.DECK)==0)
+					return false;
+				int d=s.sample(UnoState.DECK,rand);
+				if ((UnoState.matching(s.getTop())&1L<<d)!=0) {
+					s.apply(d,UnoState.DECK,UnoState.GAME,nextState(s,UnoState.HUMAN,d));
+					break;
+				}
+				s.apply(d,UnoState.DECK,UnoState.COMPUTER,s.getState());
+				if (s.size(UnoState.DECK)<5)
+					s.recycle();
+			}
+		}
+		if (s.size(UnoState.DECK)<5)
+			s.recycle();
+		return true;
+	}
+
+	private static int nextState(UnoState s,int next,int top) {
+		// the turn of player next, once top is on the game pile
+		boolean match=(s.kinds(next)&UnoState.matching(top))!=0;
+		if (next==UnoState.HUMAN)
+			return match ? UnoState.HUMAN_TURN : UnoState.HUMAN_TURN_NO_MOVES;
+		return match ? UnoState.COMPUTER_TURN : UnoState.COMPUTER_TURN_NO_MOVES;
+	}
+
+	/*
+	 * main: checks step against Play on the cards played in simulated
+	 *       games and that a player with an iteration budget makes the
+	 *       same moves every time from the same seed, with 1 tree and
+	 *       with 4, then plays MCTS (as the computer) against the
+	 *       other strategies and reports win rates and playouts per
+	 *       second
+	 *
+	 * usage: java MctsStrategy [games] [millis per move] [threads] [seed]
+	 */
+	public static void main(String[] args) {
+		int games=args.length>0 ? Integer.parseInt(args[0]) : 200;
+		int millis=args.length>1 ? Integer.parseInt(args[1]) : 10;
+		int threads=args.length>2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		long seed=args.length>3 ? Long.parseLong(args[3]) : 47;
+		SplittableRandom rand=new SplittableRandom(seed);
+
+		long checked=0;
+		for (int g=0;g<1000;g++) {
+			Play play=new Play(rand.split());
+			for (int turn=0;turn<Simulator.MAX_TURNS;turn++) {
+				UnoState before=UnoState.of(play);
+				int state=play.getState();
+				Card z=null;
+				if (state==play.HUMAN_TURN) {
+					z=Strategies.FIRST.choose(play,play.getHuman());
+					play.human_turn(z);
+				} else if (state==play.HUMAN_TURN_NO_MOVES) {
+					play.human_turn(null);
+				} else if (state==play.COMPUTER_TURN) {
+					z=Strategies.FIRST.choose(play,play.getComputer());
+					play.computer_turn(z);
+				} else {
+					play.computer_turn(null);
+				}
+				if (z!=null) {
+					step(before,UnoState.kind(z),rand);
+					if (!before.equals(UnoState.of(play)))
+						throw new IllegalStateException("step differs from Play\n"+before+"\n"+UnoState.of(play));
+					checked++;
+				}
+				if (play.getHuman().size()==0 || play.getComputer().size()==0)
+					break;
+			}
+		}
+		System.out.println(checked+" moves: step agrees with Play");
+
+		String once=moves(seed,1);
+		if (!once.equals(moves(seed,1)) || !moves(seed,4).equals(moves(seed,4)))
+			throw new IllegalStateException("withIterations plays differently from the same seed");
+		System.out.println("withIterations: same seed, same moves");
+
+		MctsStrategy mcts=new MctsStrategy(millis,threads,rand.split());
+		for (String name : new String[] {"first","color"}) {
+			Simulator.Results results=new Simulator.Results();
+			for (int g=0;g<games;g++)
+				Simulator.playGame(Strategies.byName(name),mcts,rand.split(),results);
+			results.print(name,"mcts "+millis+"ms");
+		}
+		System.out.printf("%d threads: %.0f playouts/s per thread%n",mcts.getThreads(),mcts.playoutsPerSecond());
+	}
+
+	private static String moves(long seed,int trees) {
+		// the cards an iteration-budget player picks in a few games
+		final MctsStrategy mcts=withIterations(200,trees,new SplittableRandom(seed));
+		final StringBuilder sb=new StringBuilder();
+		Strategy recorded=new Strategy() {
+			public Card choose(Play play,CardList hand) {
+				Card c=mcts.choose(play,hand);
+				sb.append(UnoState.kind(c)).append(' ');
+				return c;
+			}
+		};
+		SplittableRandom games=new SplittableRandom(seed);
+		Simulator.Results results=new Simulator.Results();
+		for (int g=0;g<20;g++)
+			Simulator.playGame(Strategies.COLOR,recorded,games.split(),results);
+		return sb.toString();
+	}
+}
@@ -1,20 +1,29 @@
 
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class Play {
 
-	private CardList deck=new CardList(true);
-	private CardList deck1=new CardList(true);
-	private CardList human=new CardList(false);
-	private CardList computer=new CardList(false);
-	private CardList game=new CardList(false);
+	// made by the constructor, so a game given its lists builds no decks
+	private CardList deck;
+	private CardList human;
+	private CardList computer;
+	private CardList game;
 	public final int HUMAN_TURN=1;
 	public final int COMPUTER_TURN=2;
 	public final int HUMAN_TURN_NO_MOVES=3;
 	public final int COMPUTER_TURN_NO_MOVES=4;
 	private int state;
-	private Random rand=new Random();
+	private SplittableRandom rand;
+	public static final int RIFFLE_SHUFFLE=1;	// 20 CardList.shuffle(split) calls, the original
+	public static final int FISHER_YATES_SHUFFLE=2;	// one CardList.shuffle(rand), uniform
+	private int shuffleMode;
+	public static final int LEVEL_FIRST=1;	// first matching card, the original computer
+	public static final int LEVEL_HEURISTIC=2;	// Strategies.COLOR
+	public static final int LEVEL_MCTS=3;	// MctsStrategy, 50 ms a move on all cores
+	private int level=LEVEL_FIRST;
+	private Strategy player=Strategies.FIRST;
+	private GameLog log;	// null when the game is not logged
 	
 	
 	public int getState() {
@@ -36,8 +45,35 @@ public class Play {
 	public CardList getGame() {
 		return this.game;
 	}
+	
+	public int getLevel() {
+		return level;
+	}
+	
+	public Strategy getPlayer() {
+		// the Strategy that picks the computer's cards at this level
+		return player;
+	}
+	
+	public void setLevel(int level) {
+		// MctsStrategy gets a generator of its own: rand only shuffles,
+		// so that a logged game can be replayed from its seed
+		if (level==LEVEL_FIRST)
+			player=Strategies.FIRST;
+		else if (level==LEVEL_HEURISTIC)
+			player=Strategies.COLOR;
+		else if (level==LEVEL_MCTS)
+			player=new MctsStrategy(MctsStrategy.DEFAULT_MILLIS,Runtime.getRuntime().availableProcessors(),new SplittableRandom());
+		else
+			throw new IllegalArgumentException("no computer level "+level);
+		this.level=level;
+	}
 
 	public void shuffle() {
+		if (shuffleMode==FISHER_YATES_SHUFFLE) {
+			deck.shuffle(rand);
+			return;
+		}
 
 /* -------------------------------------
  * This commented out shuffle can be used instead of
@@ -58,6 +94,10 @@ public class Play {
 		
 		int l=deck.size();
 		int x=0;
+		if (l<3) {
+			// too few cards for rand.nextInt(l-2) (and nothing to shuffle)
+			return;
+		}
 		for (int i=1;i<=20;i++) {
 			x=rand.nextInt(l-2)+2;
 			deck.shuffle(x);
@@ -66,9 +106,52 @@ public class Play {
 	}
 	
 	public Play() {
+		this(new SplittableRandom());
+	}
+	
+	public Play(SplittableRandom rand) {
+		this(rand,FISHER_YATES_SHUFFLE);
+	}
+	
+	public Play(CardList deck,CardList human,CardList computer,CardList game,int state,SplittableRandom rand) {
+		// a game already in progress, for example one rebuilt by
+		// UnoState.toPlay: the lists are used as they are, nothing is
+		// shuffled or dealt, and rand does the later shuffles
+		this.deck=deck;
+		this.human=human;
+		this.computer=computer;
+		this.game=game;
+		this.state=state;
+		this.rand=rand;
+		this.shuffleMode=FISHER_YATES_SHUFFLE;
+	}
+	
+	public Play(long seed,GameLog log) {
+		// a game shuffled by new SplittableRandom(seed) that writes
+		// everything that happens to log, see GameLog and GameReplay
+		this(new SplittableRandom(seed),FISHER_YATES_SHUFFLE,log,seed);
+	}
+	
+	public Play(SplittableRandom rand,int shuffleMode) {
+		this(rand,shuffleMode,null,0);
+	}
+	
+	private Play(SplittableRandom rand,int shuffleMode,GameLog log,long seed) {
+		// rand does all the shuffling of this game, so a game can be
+		// repeated by passing a generator created with the same seed;
+		// shuffleMode is RIFFLE_SHUFFLE or FISHER_YATES_SHUFFLE
+		this.rand=rand;
+		this.shuffleMode=shuffleMode;
+		this.log=log;
 		// initialize and shuffle decks
-		deck.concatenateWith(deck1);
+		deck=new CardList(true);
+		deck.concatenateWith(new CardList(true));
+		human=new CardList(false);
+		computer=new CardList(false);
+		game=new CardList(false);
 		shuffle();			
+		if (log!=null)
+			log.deal(seed);
 		// give initial 7 cards to human and computer
 		deck.moveTo(7,human);
 		deck.moveTo(7,computer);
@@ -82,27 +165,24 @@ public class Play {
 	public void moveToDeck() {
 		// when deck is almost empty it takes the cards in game and
 		// moves them back to deck so that they can be taken by players
+		// concatenateWith empties deck, so that list becomes the new game
+		CardList empty=deck;
 		game.concatenateWith(deck);
 		deck=game;
-		game=new CardList(false);
+		game=empty;
 		deck.moveTo(1,game);
 		shuffle();
+		if (log!=null)
+			log.recycle();
 	}
 	
 	public boolean check_for_human_move() {
-		Card y=human.search(game.getFirst()); 
-		if (y!=null) {
-			return true;
-		}
-		return false;		
+		// the hand index answers this without walking the hand
+		return human.hasMatch(game.getFirst());
 	}
 	
 	public boolean check_for_computer_move() {
-		Card y=computer.search(game.getFirst());
-		if (y!=null) {
-			return true;
-		}
-		return false;
+		return computer.hasMatch(game.getFirst());
 	}
 	
 	public boolean human_turn(Card z) {
@@ -117,6 +197,8 @@ public class Play {
 			else {
 				Card x=human.getCard(z);
 				human.moveTo(x,game);
+				if (log!=null)
+					log.play(false,x);
 				if (check_for_computer_move())
 					state=COMPUTER_TURN;
 				else
@@ -126,7 +208,10 @@ public class Play {
 		// in case there are no moves, card z is ignored (which is likely null)
 		// and the player takes one card from the deck
 		else if (state==HUMAN_TURN_NO_MOVES) {
+			Card y=deck.getFirst();
 			deck.moveTo(1,human);
+			if (log!=null && y!=null)
+				log.draw(false,y);
 			if (check_for_human_move())
 				state=HUMAN_TURN;
 			else
@@ -140,12 +225,19 @@ public class Play {
 	}
 		
 	public void computer_turn() {
-		// computer player throws the first card that matches the top
-		// card on game (level 1 of the game). No other levels are implemented
+		// computer player throws the card that the Strategy of its level
+		// picks: level 1 the first card that matches the top card on game,
+		// level 2 a heuristic, level 3 a Monte Carlo tree search
+		computer_turn(state==COMPUTER_TURN ? player.choose(this,computer) : null);
+	}
+	
+	public void computer_turn(Card z) {
+		// same as computer_turn(), but the computer throws card z, which
+		// was picked by someone else (for example a Strategy) and must
+		// match the top card on game
 		if (state==COMPUTER_TURN) {
-			Card y=computer.search(game.getFirst());
-			if (y!=null) {
-				computer.moveTo(y,game);
+			if (z!=null && computer.moveTo(z,game) && log!=null) {
+				log.play(true,z);
 			}
 		}
 		// in case that the computer has no cards that match the top one
@@ -156,12 +248,16 @@ public class Play {
 			Card y=deck.getFirst();
 			while (! y.matches(false,game.getFirst())) {
 				deck.moveTo(1,computer);
+				if (log!=null)
+					log.draw(true,y);
 				if (deck.size()<5) {
 					moveToDeck();
 				}
 				y=deck.getFirst();					
 			}
 			deck.moveTo(1,game);
+			if (log!=null)
+				log.draw(true,y);
 		}		
 		if (deck.size()<5) {
 			moveToDeck();
@@ -0,0 +1,92 @@
+import java.util.SplittableRandom;
+
+/*
+ * ShuffleCheck: compares the two ways Play can shuffle a deck.
+ *
+ * Uniformity: a 4 card list is shuffled many times with each method and
+ * the 24 possible orders are counted. A chi-square statistic above 49.7
+ * (23 degrees of freedom, p = 0.001) means the orders are not equally
+ * likely.
+ *
+ * Speed: time per shuffle of Play's 80 card deck.
+ */
+public class ShuffleCheck {
+
+	private static CardList smallList() {
+		// 4 cards: 0..3 of one color
+		CardList full=new CardList(true);
+		CardList small=new CardList(false);
+		for (int number=3;number>=0;number--)
+			full.moveTo(new Card(number,Card.Colors.RED,null),small);
+		return small;
+	}
+
+	private static int order(CardList list) {
+		// index of the order of cards 0..3 among the 24 permutations
+		int code=0;
+		int used=0;
+		int k=3;
+		for (Card c=list.getFirst();c!=null;c=c.getNext()) {
+			int rank=Integer.bitCount(((1<<c.getNumber())-1)&~used);
+			code=code*(k+1)+rank;
+			used|=1<<c.getNumber();
+			k--;
+		}
+		return code;
+	}
+
+	private static void riffle(CardList deck,SplittableRandom rand) {
+		// what Play.shuffle does with RIFFLE_SHUFFLE
+		int l=deck.size();
+		for (int i=1;i<=20;i++)
+			deck.shuffle(rand.nextInt(l-2)+2);
+	}
+
+	private static void report(String name,long[] counts,long trials) {
+		double expected=trials/24.0;
+		double chi=0;
+		int seen=0;
+		for (long c : counts) {
+			chi+=(c-expected)*(c-expected)/expected;
+			if (c>0) seen++;
+		}
+		System.out.printf("%-13s %2d of 24 orders seen, chi-square %.1f %s%n",name,seen,chi,
+				chi<49.7 ? "(uniform)" : "(NOT uniform)");
+	}
+
+	public static void main(String[] args) {
+		SplittableRandom rand=new SplittableRandom(44);
+		int trials=240000;
+		long[] fy=new long[24];
+		long[] rf=new long[24];
+		CardList list=smallList();
+		for (int t=0;t<trials;t++) {
+			list.shuffle(rand);
+			fy[order(list)]++;
+		}
+		for (int t=0;t<trials;t++) {
+			riffle(list,rand);
+			rf[order(list)]++;
+		}
+		report("Fisher-Yates",fy,trials);
+		report("riffle",rf,trials);
+
+		CardList deck=new CardList(true);
+		deck.concatenateWith(new CardList(true));
+		for (int round=1;round<=3;round++) {
+			int n=200000;
+			long t0=System.nanoTime();
+			for (int i=0;i<n;i++)
+				riffle(deck,rand);
+			long t1=System.nanoTime();
+			for (int i=0;i<n;i++)
+				deck.shuffle(rand);
+			long t2=System.nanoTime();
+			if (round==3)
+				System.out.printf("80 cards: riffle %.0f ns/shuffle, Fisher-Yates %.0f ns/shuffle%n",
+						(t1-t0)/(double) n,(t2-t1)/(double) n);
+		}
+		if (deck.size()!=80)
+			throw new IllegalStateException("lost cards");
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Simulator: plays complete Play games without the Gui, with a Strategy
+ * choosing the cards of each side, and collects win rates and game
+ * lengths. The "human" side is just the player that moves first.
+ *
+ * usage: java Simulator [games] [human strategy] [computer strategy] [log file]
+ */
+public class Simulator {
+
+	public static final int HUMAN_WON=0;
+	public static final int COMPUTER_WON=1;
+	public static final int UNFINISHED=2;	// still going after MAX_TURNS
+	public static final int FAILED=3;	// Play threw an exception
+	public static final int MAX_TURNS=1000;
+
+	/*
+	 * Results: outcome counts and a histogram of game lengths in turns
+	 */
+	public static class Results {
+		public long[] outcomes=new long[4];
+		public long[] turns=new long[MAX_TURNS+1];
+		public long games;
+
+		public void add(int outcome,int gameTurns) {
+			outcomes[outcome]++;
+			turns[gameTurns]++;
+			games++;
+		}
+
+		public void merge(Results other) {
+			for (int i=0;i<outcomes.length;i++)
+				outcomes[i]+=other.outcomes[i];
+			for (int i=0;i<turns.length;i++)
+				turns[i]+=other.turns[i];
+			games+=other.games;
+		}
+
+		public int percentile(double p) {
+			// smallest game length such that a fraction p of games were no longer
+			long target=(long) Math.ceil(p*games);
+			long seen=0;
+			for (int i=0;i<turns.length;i++) {
+				seen+=turns[i];
+				if (seen>=target && seen>0)
+					return i;
+			}
+			return MAX_TURNS;
+		}
+
+		public void print(String human,String computer) {
+			double total=Math.max(games,1);
+			System.out.printf("human=%s vs computer=%s: %d games, human won %.2f%%, computer won %.2f%%, unfinished %.2f%%, failed %.2f%%%n",
+					human,computer,games,100*outcomes[HUMAN_WON]/total,100*outcomes[COMPUTER_WON]/total,
+					100*outcomes[UNFINISHED]/total,100*outcomes[FAILED]/total);
+			System.out.printf("   turns: p10 %d, p50 %d, p90 %d, p99 %d%n",
+					percentile(0.1),percentile(0.5),percentile(0.9),percentile(0.99));
+		}
+	}
+
+	/*
+	 * playGame: plays one new game to the end and adds it to results
+	 */
+	public static void playGame(Strategy human,Strategy computer,Results results) {
+		playGame(human,computer,new java.util.SplittableRandom(),results);
+	}
+
+	/*
+	 * playGame: same, with all shuffling done by rand
+	 */
+	public static void playGame(Strategy human,Strategy computer,java.util.SplittableRandom rand,Results results) {
+		playGame(human,computer,rand,results,null);
+	}
+
+	/*
+	 * playGame: same, and if log is not null the game, shuffled from a
+	 *           seed taken from rand, is written to it with its outcome
+	 */
+	public static void playGame(Strategy human,Strategy computer,java.util.SplittableRandom rand,Results results,GameLog log) {
+		int turns=0;
+		int outcome=UNFINISHED;
+		try {
+			Play play=log==null ? new Play(rand) : new Play(rand.nextLong(),log);
+			while (turns<MAX_TURNS) {
+				int state=play.getState();
+				if (state==play.HUMAN_TURN)
+					play.human_turn(human.choose(play,play.getHuman()));
+				else if (state==play.HUMAN_TURN_NO_MOVES)
+					play.human_turn(null);
+				else if (state==play.COMPUTER_TURN)
+					play.computer_turn(computer.choose(play,play.getComputer()));
+				else
+					play.computer_turn(null);
+				turns++;
+				if (play.getHuman().size()==0) {
+					outcome=HUMAN_WON;
+					break;
+				}
+				if (play.getComputer().size()==0) {
+					outcome=COMPUTER_WON;
+					break;
+				}
+			}
+		}
+		catch (RuntimeException e) {
+			outcome=FAILED;
+		}
+		if (log!=null)
+			log.end(outcome);
+		results.add(outcome,turns);
+	}
+
+	public static void main(String[] args) throws java.io.IOException {
+		int games=args.length>0 ? Integer.parseInt(args[0]) : 100000;
+		String human=args.length>1 ? args[1] : "first";
+		String computer=args.length>2 ? args[2] : "first";
+		GameLog log=args.length>3 ? new GameLog(args[3]) : null;
+		Strategy h=Strategies.byName(human);
+		Strategy c=Strategies.byName(computer);
+
+		// warm up the JIT before timing
+		java.util.SplittableRandom rand=new java.util.SplittableRandom();
+		Results warmup=new Results();
+		for (int i=0;i<Math.min(games,20000);i++)
+			playGame(h,c,rand,warmup);
+
+		Results results=new Results();
+		long t0=System.nanoTime();
+		for (int i=0;i<games;i++)
+			playGame(h,c,rand,results,log);
+		if (log!=null)
+			log.close();
+		long t1=System.nanoTime();
+		results.print(human,computer);
+		System.out.printf("   %.0f games/s (%.2f M games/min) on one thread%n",
+				games/((t1-t0)/1e9),games*60/((t1-t0)/1e9)/1e6);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Strategies: the Strategy implementations the Simulator knows by name
+ */
+public class Strategies {
+
+	/*
+	 * first: the first card that matches, what computer_turn() does (level 1)
+	 */
+	public static final Strategy FIRST=new Strategy() {
+		public Card choose(Play play, CardList hand) {
+			return hand.search(play.getGame().getFirst());
+		}
+	};
+
+	/*
+	 * highest: the matching card with the highest number
+	 */
+	public static final Strategy HIGHEST=new Strategy() {
+		public Card choose(Play play, CardList hand) {
+			Card top=play.getGame().getFirst();
+			Card best=null;
+			for (Card c=hand.getFirst();c!=null;c=c.getNext()) {
+				if (c.matches(false,top) && (best==null || c.getNumber()>best.getNumber()))
+					best=c;
+			}
+			return best;
+		}
+	};
+
+	/*
+	 * color: the matching card whose color the player holds most of,
+	 *        so that the next turn is more likely to have a match
+	 */
+	public static final Strategy COLOR=new Strategy() {
+		public Card choose(Play play, CardList hand) {
+			int[] colors=new int[Card.Colors.values().length];
+			for (Card c=hand.getFirst();c!=null;c=c.getNext())
+				colors[c.getColor().ordinal()]++;
+			Card top=play.getGame().getFirst();
+			Card best=null;
+			for (Card c=hand.getFirst();c!=null;c=c.getNext()) {
+				if (c.matches(false,top) && (best==null
+						|| colors[c.getColor().ordinal()]>colors[best.getColor().ordinal()]))
+					best=c;
+			}
+			return best;
+		}
+	};
+
+	public static Strategy byName(String name) {
+		return byName(name,new java.util.SplittableRandom());
+	}
+
+	/*
+	 * byName: the strategy called name; "mcts" is a new MctsStrategy with
+	 *         a fixed number of iterations a move, seeded from rand, so
+	 *         it plays the same way whenever rand does. The other names
+	 *         do not use rand.
+	 */
+	public static Strategy byName(String name,java.util.SplittableRandom rand) {
+		switch (name) {
+		case "first":
+			return FIRST;
+		case "highest":
+			return HIGHEST;
+		case "color":
+			return COLOR;
+		case "mcts":
+			return MctsStrategy.withIterations(MctsStrategy.DEFAULT_ITERATIONS,1,rand.split());
+		}
+		throw new IllegalArgumentException("unknown strategy: "+name);
+	}
+}
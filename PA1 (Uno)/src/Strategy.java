@@ -0,0 +1,13 @@
+/*
+ * Strategy: picks the card a player throws when it has at least one
+ * card that matches the top card on game. Used by the headless
+ * Simulator to play Play games without the Gui.
+ */
+public interface Strategy {
+
+	/*
+	 * choose: returns a card of hand that matches (matches(false,...))
+	 *         the top card of play.getGame()
+	 */
+	Card choose(Play play, CardList hand);
+}
@@ -0,0 +1,111 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Tournament: plays a number of games for every (human, computer) pairing
+ * of strategies on a ForkJoinPool.
+ *
+ * The games of a pairing are cut into fixed blocks of BLOCK games. Before
+ * anything runs, every block gets its own SplittableRandom, split off a
+ * generator created from the master seed in a fixed order, so the games
+ * played do not depend on which thread runs which block: the same seed
+ * always gives the same results. Each block also makes its own players
+ * with Strategies.byName, seeded from its generator, so that holds for
+ * "mcts" too, which searches a fixed number of iterations a move. Each
+ * block fills its own Results, which are merged as the tasks join, so
+ * workers never share anything mutable.
+ *
+ * An "mcts" pairing is thousands of times slower than the others, so
+ * with "mcts" among the strategies the default is 1000 games a pairing.
+ *
+ * usage: java Tournament [games per pairing] [seed] [threads] [strategies...]
+ */
+public class Tournament {
+
+	private static final int BLOCK=1000;
+
+	private static class Games extends RecursiveTask<Simulator.Results> {
+		private static final long serialVersionUID=1L;
+		private String human,computer;
+		private SplittableRandom[] rands;
+		private int games,from,to;	// blocks from..to-1
+
+		Games(String human,String computer,SplittableRandom[] rands,int games,int from,int to) {
+			this.human=human;
+			this.computer=computer;
+			this.rands=rands;
+			this.games=games;
+			this.from=from;
+			this.to=to;
+		}
+
+		protected Simulator.Results compute() {
+			if (to-from==1) {
+				Simulator.Results results=new Simulator.Results();
+				SplittableRandom rand=rands[from];
+				Strategy h=Strategies.byName(human,rand);
+				Strategy c=Strategies.byName(computer,rand);
+				int n=Math.min(BLOCK,games-from*BLOCK);
+				for (int i=0;i<n;i++)
+					Simulator.playGame(h,c,rand,results);
+				return results;
+			}
+			int mid=(from+to)>>>1;
+			Games left=new Games(human,computer,rands,games,from,mid);
+			left.fork();
+			Simulator.Results results=new Games(human,computer,rands,games,mid,to).compute();
+			results.merge(left.join());
+			return results;
+		}
+	}
+
+	/*
+	 * run: plays games games of every pairing of the strategies with the
+	 *      given names (see Strategies.byName), returns
+	 *      results[human][computer]
+	 */
+	public static Simulator.Results[][] run(String[] strategies,int games,long seed,ForkJoinPool pool) {
+		int n=strategies.length;
+		int blocks=(games+BLOCK-1)/BLOCK;
+		SplittableRandom master=new SplittableRandom(seed);
+		SplittableRandom[][][] rands=new SplittableRandom[n][n][blocks];
+		for (int h=0;h<n;h++)
+			for (int c=0;c<n;c++)
+				for (int b=0;b<blocks;b++)
+					rands[h][c][b]=master.split();
+
+		Simulator.Results[][] results=new Simulator.Results[n][n];
+		for (int h=0;h<n;h++)
+			for (int c=0;c<n;c++)
+				results[h][c]=blocks==0 ? new Simulator.Results()
+						: pool.invoke(new Games(strategies[h],strategies[c],rands[h][c],games,0,blocks));
+		return results;
+	}
+
+	public static void main(String[] args) {
+		String[] names={"first","highest","color"};
+		if (args.length>3)
+			names=java.util.Arrays.copyOfRange(args,3,args.length);
+		boolean mcts=java.util.Arrays.asList(names).contains("mcts");
+		for (String name : names)
+			Strategies.byName(name);	// unknown names fail before anything runs
+		int games=args.length>0 ? Integer.parseInt(args[0]) : mcts ? 1000 : 100000;
+		long seed=args.length>1 ? Long.parseLong(args[1]) : 112;
+		int threads=args.length>2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		ForkJoinPool pool=new ForkJoinPool(threads);
+		run(names,Math.min(games,mcts ? 100 : 10000),seed,pool);	// JIT warm-up
+		long t0=System.nanoTime();
+		Simulator.Results[][] results=run(names,games,seed,pool);
+		long t1=System.nanoTime();
+		pool.shutdown();
+
+		for (int h=0;h<names.length;h++)
+			for (int c=0;c<names.length;c++)
+				results[h][c].print(names[h],names[c]);
+		long total=(long) games*names.length*names.length;
+		System.out.printf("%d games on %d threads in %.1f s: %.0f games/s (seed %d)%n",
+				total,threads,(t1-t0)/1e9,total/((t1-t0)/1e9),seed);
+	}
+}
@@ -0,0 +1,365 @@
+import java.util.SplittableRandom;
+
+/*
+ * UnoState: the state of a Play game packed into a few longs, small and
+ * cheap to copy, for look-ahead players and for storing many states.
+ *
+ * Each zone (deck, human hand, computer hand, game pile) is a multiset of
+ * the 40 kinds of card, kind = color*10+number as in CardList. The count
+ * of each kind (0..3, an 80 card game never has more than 2) is kept in
+ * two bit planes: bit kind of the low plane is count&1 and of the high
+ * plane count>>1. So a zone is two longs, the kinds present in it are
+ * low|high, and adding or taking one card changes at most two bits.
+ * Besides the zones there is the kind on top of the game pile and the
+ * turn state (Play.HUMAN_TURN ...). The order of the deck is not kept,
+ * toPlay shuffles it.
+ *
+ * A move takes one card of a kind from one zone to another and sets the
+ * turn state. apply returns it as an int token that also holds the top
+ * card and turn state from before the move, so undo takes it back in O(1):
+ *     bits 0-5 kind, 6-7 from, 8-9 to, 10-15 previous top, 16-18 previous state
+ */
+public class UnoState {
+
+	public static final int DECK=0;
+	public static final int HUMAN=1;
+	public static final int COMPUTER=2;
+	public static final int GAME=3;
+	public static final int KINDS=40;
+	public static final int NO_CARD=63;	// top of an empty game pile
+	// turn states, the same values as Play.HUMAN_TURN ...
+	public static final int HUMAN_TURN=1;
+	public static final int COMPUTER_TURN=2;
+	public static final int HUMAN_TURN_NO_MOVES=3;
+	public static final int COMPUTER_TURN_NO_MOVES=4;
+
+	// the kinds of one color, and of one number (in all four colors)
+	private static final long COLOR_MASK=(1L<<10)-1;
+	private static final long NUMBER_MASK=1L|1L<<10|1L<<20|1L<<30;
+	private static final Card.Colors[] COLORS=Card.Colors.values();
+
+	private final long[] planes=new long[8];	// zone*2: low plane, zone*2+1: high plane
+	private int top=NO_CARD;
+	private int state;
+
+	public static int kind(Card card) {
+		return card.getKind();
+	}
+
+	public static Card card(int kind) {
+		return new Card(kind%10,COLORS[kind/10],null);
+	}
+
+	/*
+	 * matching: the kinds that can be played on kind (same color or number)
+	 */
+	public static long matching(int kind) {
+		return COLOR_MASK<<(kind/10*10) | NUMBER_MASK<<(kind%10);
+	}
+
+	public int getTop() {
+		return top;
+	}
+
+	public int getState() {
+		return state;
+	}
+
+	public int count(int zone,int kind) {
+		return (int) (planes[2*zone]>>>kind&1)+2*(int) (planes[2*zone+1]>>>kind&1);
+	}
+
+	public int size(int zone) {
+		return Long.bitCount(planes[2*zone])+2*Long.bitCount(planes[2*zone+1]);
+	}
+
+	/*
+	 * kinds: bit kind is set if zone holds at least one card of that kind
+	 */
+	public long kinds(int zone) {
+		return planes[2*zone] | planes[2*zone+1];
+	}
+
+	/*
+	 * playable: the kinds in zone that can be played on the top card
+	 */
+	public long playable(int zone) {
+		return top==NO_CARD ? kinds(zone) : kinds(zone) & matching(top);
+	}
+
+	/*
+	 * sample: a random card of zone, each card equally likely, so a kind
+	 *         comes up as often as it has copies; zone must not be empty.
+	 *         Drawing this way is the same as drawing from a shuffled deck.
+	 */
+	public int sample(int zone,java.util.random.RandomGenerator rand) {
+		long low=planes[2*zone];
+		long high=planes[2*zone+1];
+		int ones=Long.bitCount(low);
+		int r=rand.nextInt(ones+2*Long.bitCount(high));
+		long m=low;
+		if (r>=ones) {
+			m=high;
+			r=(r-ones)>>1;
+		}
+		for (;r>0;r--)
+			m&=m-1;
+		return Long.numberOfTrailingZeros(m);
+	}
+
+	private void add(int zone,int kind) {
+		long bit=1L<<kind;
+		int i=2*zone;
+		if ((planes[i]&bit)==0) {
+			planes[i]|=bit;
+		} else {
+			if ((planes[i+1]&bit)!=0)
+				throw new IllegalStateException("more than 3 cards of kind "+kind+" in zone "+zone);
+			planes[i]&=~bit;
+			planes[i+1]|=bit;
+		}
+	}
+
+	private void remove(int zone,int kind) {
+		long bit=1L<<kind;
+		int i=2*zone;
+		if ((planes[i]&bit)!=0) {
+			planes[i]&=~bit;
+		} else {
+			if ((planes[i+1]&bit)==0)
+				throw new IllegalStateException("no card of kind "+kind+" in zone "+zone);
+			planes[i+1]&=~bit;
+			planes[i]|=bit;
+		}
+	}
+
+	/*
+	 * apply: moves one card of kind from zone from to zone to, and sets
+	 *        the turn state to newState. A card moved to the game pile
+	 *        becomes its top card. Returns the token for undo.
+	 */
+	public int apply(int kind,int from,int to,int newState) {
+		int token=kind | from<<6 | to<<8 | top<<10 | state<<16;
+		remove(from,kind);
+		add(to,kind);
+		if (to==GAME)
+			top=kind;
+		state=newState;
+		return token;
+	}
+
+	/*
+	 * undo: takes back the move that returned token; moves have to be
+	 *       undone in the opposite order they were applied in
+	 */
+	public void undo(int token) {
+		int kind=token&63;
+		int from=token>>>6&3;
+		int to=token>>>8&3;
+		remove(to,kind);
+		add(from,kind);
+		top=token>>>10&63;
+		state=token>>>16&7;
+	}
+
+	/*
+	 * recycle: what Play.moveToDeck does, every card of the game pile but
+	 *          the top one goes back to the deck. The two multisets are
+	 *          added plane by plane with a carry. This cannot be undone
+	 *          with a token, keep a copy() if it has to be.
+	 */
+	public void recycle() {
+		if (top!=NO_CARD)
+			remove(GAME,top);
+		long a0=planes[2*DECK], a1=planes[2*DECK+1];
+		long b0=planes[2*GAME], b1=planes[2*GAME+1];
+		long carry=a0&b0;
+		if ((a1&b1 | carry&(a1^b1))!=0)
+			throw new IllegalStateException("more than 3 cards of a kind in the deck");
+		planes[2*DECK]=a0^b0;
+		planes[2*DECK+1]=a1^b1^carry;
+		planes[2*GAME]=top==NO_CARD ? 0 : 1L<<top;
+		planes[2*GAME+1]=0;
+	}
+
+	public UnoState copy() {
+		UnoState s=new UnoState();
+		s.copyFrom(this);
+		return s;
+	}
+
+	public void copyFrom(UnoState other) {
+		System.arraycopy(other.planes,0,planes,0,planes.length);
+		top=other.top;
+		state=other.state;
+	}
+
+	public boolean equals(Object o) {
+		if (!(o instanceof UnoState))
+			return false;
+		UnoState s=(UnoState) o;
+		return top==s.top && state==s.state && java.util.Arrays.equals(planes,s.planes);
+	}
+
+	public int hashCode() {
+		return java.util.Arrays.hashCode(planes)*31*31+top*31+state;
+	}
+
+	/*
+	 * of: the state of play
+	 */
+	public static UnoState of(Play play) {
+		UnoState s=new UnoState();
+		s.addAll(DECK,play.getDeck());
+		s.addAll(HUMAN,play.getHuman());
+		s.addAll(COMPUTER,play.getComputer());
+		s.addAll(GAME,play.getGame());
+		Card first=play.getGame().getFirst();
+		s.top=first==null ? NO_CARD : kind(first);
+		s.state=play.getState();
+		return s;
+	}
+
+	private void addAll(int zone,CardList list) {
+		for (Card c=list.getFirst();c!=null;c=c.getNext())
+			add(zone,kind(c));
+	}
+
+	/*
+	 * toPlay: a Play in this state, with the deck shuffled by rand, which
+	 *         the Play also keeps for its later shuffles
+	 */
+	public Play toPlay(SplittableRandom rand) {
+		CardList[] lists=new CardList[4];
+		for (int zone=DECK;zone<=GAME;zone++) {
+			lists[zone]=new CardList(false);
+			for (int kind=KINDS-1;kind>=0;kind--) {
+				int n=count(zone,kind);
+				if (zone==GAME && kind==top)
+					n--;	// added last, so it is first
+				for (int i=0;i<n;i++)
+					lists[zone].add(card(kind));
+			}
+		}
+		if (top!=NO_CARD)
+			lists[GAME].add(card(top));
+		lists[DECK].shuffle(rand);
+		return new Play(lists[DECK],lists[HUMAN],lists[COMPUTER],lists[GAME],state,rand);
+	}
+
+	public String toString() {
+		StringBuilder sb=new StringBuilder();
+		String[] names={"deck","human","computer","game"};
+		for (int zone=DECK;zone<=GAME;zone++) {
+			sb.append(names[zone]).append(' ').append(size(zone)).append(':');
+			for (int kind=0;kind<KINDS;kind++)
+				for (int i=count(zone,kind);i>0;i--)
+					sb.append(' ').append(kind%10).append(COLORS[kind/10].name().charAt(0));
+			sb.append('\n');
+		}
+		sb.append("top ").append(top==NO_CARD ? "none" : top%10+""+COLORS[top/10].name().charAt(0));
+		sb.append(", state ").append(state);
+		return sb.toString();
+	}
+
+	/*
+	 * main: checks the conversions and apply/undo on states taken from
+	 *       simulated games, then compares the cost of copying a state
+	 *       with rebuilding it from a Play
+	 *
+	 * usage: java UnoState [games] [seed]
+	 */
+	public static void main(String[] args) {
+		int games=args.length>0 ? Integer.parseInt(args[0]) : 2000;
+		long seed=args.length>1 ? Long.parseLong(args[1]) : 46;
+		SplittableRandom rand=new SplittableRandom(seed);
+		long states=0;
+		for (int g=0;g<games;g++) {
+			Play play=new Play(rand.split());
+			for (int turn=0;turn<Simulator.MAX_TURNS;turn++) {
+				check(play,rand);
+				states++;
+				int state=play.getState();
+				if (state==play.HUMAN_TURN)
+					play.human_turn(Strategies.FIRST.choose(play,play.getHuman()));
+				else if (state==play.HUMAN_TURN_NO_MOVES)
+					play.human_turn(null);
+				else
+					play.computer_turn();
+				if (play.getHuman().size()==0 || play.getComputer().size()==0)
+					break;
+			}
+		}
+		System.out.println(states+" states from "+games+" games: conversions and apply/undo check out");
+
+		Play play=new Play(new SplittableRandom(seed));
+		UnoState s=of(play);
+		UnoState t=new UnoState();
+		int[] tokens=new int[64];
+		for (int round=1;round<=3;round++) {
+			int n=1000000;
+			long sum=0;
+			long t0=System.nanoTime();
+			for (int i=0;i<n;i++)
+				sum+=of(play).size(DECK);
+			long t1=System.nanoTime();
+			for (int i=0;i<n;i++) {
+				t.copyFrom(s);
+				sum+=t.size(DECK);
+			}
+			long t2=System.nanoTime();
+			for (int i=0;i<n;i++) {
+				int k=0;
+				for (long m=t.kinds(HUMAN);m!=0 && k<tokens.length;m&=m-1)
+					tokens[k++]=t.apply(Long.numberOfTrailingZeros(m),HUMAN,GAME,play.COMPUTER_TURN);
+				while (k>0)
+					t.undo(tokens[--k]);
+				sum+=t.getTop();
+			}
+			long t3=System.nanoTime();
+			if (round==3) {
+				System.out.printf("of(Play) %.0f ns, copyFrom %.1f ns, apply+undo of a whole hand (%d cards) %.1f ns (%d)%n",
+						(t1-t0)/(double) n,(t2-t1)/(double) n,Long.bitCount(t.kinds(HUMAN)),(t3-t2)/(double) n,sum);
+			}
+		}
+	}
+
+	private static void check(Play play,SplittableRandom rand) {
+		UnoState s=of(play);
+		int[] sizes={play.getDeck().size(),play.getHuman().size(),play.getComputer().size(),play.getGame().size()};
+		for (int zone=DECK;zone<=GAME;zone++)
+			if (s.size(zone)!=sizes[zone])
+				throw new IllegalStateException("zone "+zone+" has "+s.size(zone)+" cards, the Play "+sizes[zone]+"\n"+s);
+		UnoState back=of(s.toPlay(rand.split()));
+		if (!back.equals(s))
+			throw new IllegalStateException("toPlay/of changed the state\n"+s+"\n"+back);
+
+		// random moves between random zones, then undo them all
+		UnoState t=s.copy();
+		int[] tokens=new int[20];
+		for (int i=0;i<tokens.length;i++) {
+			int from;
+			do
+				from=rand.nextInt(4);
+			while (t.kinds(from)==0);
+			long m=t.kinds(from);
+			for (int skip=rand.nextInt(Long.bitCount(m));skip>0;skip--)
+				m&=m-1;
+			int to=(from+1+rand.nextInt(3))%4;
+			tokens[i]=t.apply(Long.numberOfTrailingZeros(m),from,to,1+rand.nextInt(4));
+		}
+		for (int i=tokens.length-1;i>=0;i--)
+			t.undo(tokens[i]);
+		if (!t.equals(s))
+			throw new IllegalStateException("undo did not restore the state\n"+s+"\n"+t);
+
+		// recycle against Play.moveToDeck on a copy of the game
+		if (s.size(GAME)>1) {
+			t.recycle();
+			Play q=s.toPlay(rand.split());
+			q.moveToDeck();
+			if (!of(q).equals(t))
+				throw new IllegalStateException("recycle differs from moveToDeck\n"+t+"\n"+of(q));
+		}
+	}
+}
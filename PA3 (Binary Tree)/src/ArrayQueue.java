@@ -0,0 +1,129 @@
+public class ArrayQueue<T> {
+	// Same API as Queue, backed by a growable circular array instead of a DLL:
+	// one array slot per element instead of a Node with prev/next references.
+	// The capacity is a power of two so positions wrap with a mask.
+	private Object[] items;
+	private int head;	// position of the oldest element
+	private int count;
+
+	public ArrayQueue() {
+		this(16);
+	}
+
+	public ArrayQueue(int capacity) {
+		items=new Object[Integer.highestOneBit(Math.max(capacity-1,1))<<1];
+		head=0;
+		count=0;
+	}
+
+	public void enqueue(T element) {
+		if (count==items.length) {
+			grow();
+		}
+		items[(head+count)&(items.length-1)]=element;
+		count++;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T dequeue() {
+		T element=null;
+		if (count>0) {
+			element=(T) items[head];
+			items[head]=null;
+			head=(head+1)&(items.length-1);
+			count--;
+		}
+		return element;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return count==0;
+	}
+
+	public void traverse() {
+		// newest first, like Queue
+		for (int i=count-1;i>=0;i--) {
+			System.out.print(items[(head+i)&(items.length-1)]+" ");
+		}
+	}
+
+	private void grow() {
+		// unwraps the elements to the front of an array twice the size
+		Object[] bigger=new Object[2*items.length];
+		int firstPart=Math.min(count,items.length-head);
+		System.arraycopy(items,head,bigger,0,firstPart);
+		System.arraycopy(items,0,bigger,firstPart,count-firstPart);
+		items=bigger;
+		head=0;
+	}
+
+	public static void main(String[] args) {
+		ArrayQueue<String> myQueue=new ArrayQueue<String>(4);
+
+		myQueue.enqueue("the");
+		myQueue.enqueue("quick");
+		myQueue.enqueue("brown");
+		myQueue.enqueue("fox");
+		myQueue.enqueue("jumps");
+		myQueue.enqueue("over");
+
+		myQueue.traverse();
+
+		System.out.println("dequeue->"+myQueue.dequeue());
+
+		myQueue.traverse();
+		myQueue.enqueue("the");
+		myQueue.enqueue("lazy");
+		myQueue.traverse();
+
+		System.out.println("dequeue->"+myQueue.dequeue());
+
+		myQueue.traverse();
+		System.out.println();
+
+		// moves n elements through each queue the way join does: fill,
+		// then repeatedly dequeue two and enqueue one until one is left
+		int n=1<<22;
+		Integer[] boxes=new Integer[n];
+		for (int i=0;i<n;i++) {
+			boxes[i]=i;
+		}
+		double[] values=new double[n];
+		for (int round=1;round<=3;round++) {
+			long t0=System.nanoTime();
+			Queue<Integer> q=new Queue<Integer>();
+			for (int i=0;i<n;i++) {
+				q.enqueue(boxes[i]);
+			}
+			while (q.size()>1) {
+				q.dequeue();
+				q.enqueue(q.dequeue());
+			}
+			long t1=System.nanoTime();
+			ArrayQueue<Integer> aq=new ArrayQueue<Integer>();
+			for (int i=0;i<n;i++) {
+				aq.enqueue(boxes[i]);
+			}
+			while (aq.size()>1) {
+				aq.dequeue();
+				aq.enqueue(aq.dequeue());
+			}
+			long t2=System.nanoTime();
+			DoubleArrayQueue dq=new DoubleArrayQueue();
+			for (int i=0;i<n;i++) {
+				dq.enqueue(values[i]);
+			}
+			while (dq.size()>1) {
+				dq.dequeue();
+				dq.enqueue(dq.dequeue());
+			}
+			long t3=System.nanoTime();
+			System.out.printf("round %d: Queue %.1f ns/op, ArrayQueue %.1f ns/op, DoubleArrayQueue %.1f ns/op%n",round,
+					(t1-t0)/(3.0*n),(t2-t1)/(3.0*n),(t3-t2)/(3.0*n));
+		}
+	}
+}
@@ -22,12 +22,51 @@ public class Assignment3 {
 					d.count++;
 				}
 			}
+			d.total = d.count;
 			BTNode<dataNode> n = new BTNode<dataNode>(d, null, null, null);
 			q.enqueue(n);
 		}
 		return q;
 	}
 	
+	public static Queue<BTNode<dataNode>> makeQueueSorted(double[] a){
+		// Same leaves as makeQueue for a sorted array, built in one pass:
+		// equal values are adjacent, so each run of them is one leaf whose
+		// count is the length of the run.
+		
+		Queue<BTNode<dataNode>> q = new Queue<BTNode<dataNode>>();
+		int i = 0;
+		while (i < a.length) {
+			int j = i + 1;
+			while (j < a.length && a[j] == a[i]) {
+				j++;
+			}
+			q.enqueue(makeLeaf(a[i], j - i));
+			i = j;
+		}
+		return q;
+	}
+	
+	public static Queue<BTNode<dataNode>> makeQueueUnsorted(double[] a){
+		// Sorts a copy of the array in O(n log n); the leaves then come out
+		// in increasing order, exactly as makeQueueSorted gives them for
+		// the sorted array.
+		
+		double[] sorted = java.util.Arrays.copyOf(a, a.length);
+		java.util.Arrays.sort(sorted);
+		return makeQueueSorted(sorted);
+	}
+	
+	public static BTNode<dataNode> makeLeaf(double value, int count){
+		dataNode d = new dataNode();
+		d.value = value;
+		d.min = value;
+		d.max = value;
+		d.count = count;
+		d.total = count;
+		return new BTNode<dataNode>(d, null, null, null);
+	}
+	
 	public static Queue<BTNode<dataNode>> join(Queue<BTNode<dataNode>> myQueue){
 		// For every two elements dequeued from myQueue create a new root element and
 		// make the two dequeued elements be the left and right child of that root.
@@ -63,6 +102,7 @@ public class Assignment3 {
 			newRoot.count = 0;
 			newRoot.max = rightMax;
 			newRoot.min = leftMin;
+			newRoot.total = left.total + right.total;
 		
 			BTNode<dataNode> newNode = new BTNode<dataNode>(newRoot, d1, d2, null);
 			newQ.enqueue(newNode);
@@ -70,24 +110,211 @@ public class Assignment3 {
 		return newQ;
 	}
 	
-	public static int search(BTNode<dataNode> root,double target) {
-		// given a target value recursively search on the left or the right subtrees
-		// by comparing the value in root to the target. You know that you got to a 
-		// leaf when the value count of the root is not equal to 0.
+	public static BTNode<dataNode> buildTree(double[] a) {
+		// Builds the same tree as makeQueue followed by join until one node
+		// is left, for a sorted array. The leaves are made in one run-length
+		// pass into an array, then every level is joined in place in that
+		// array: nodes 2i and 2i+1 become node i, and an odd last node moves
+		// up unchanged, just like the single element left in join.
 		
-		if (root.getData().value == target) {
-			return root.getData().count;
+		if (a.length == 0) {
+			return null;
 		}
+		@SuppressWarnings("unchecked")
+		BTNode<dataNode>[] nodes = (BTNode<dataNode>[]) new BTNode<?>[a.length];
+		int n = 0;
+		int i = 0;
+		while (i < a.length) {
+			int j = i + 1;
+			while (j < a.length && a[j] == a[i]) {
+				j++;
+			}
+			nodes[n++] = makeLeaf(a[i], j - i);
+			i = j;
+		}
+		return joinAll(nodes, n);
+	}
+	
+	public static BTNode<dataNode> joinAll(BTNode<dataNode>[] nodes, int n) {
+		// Joins nodes[0..n-1] level by level, overwriting the array, and
+		// returns the root. The nodes must be in increasing order.
 		
-		if (root.getData().count > 0) {
-			return 0;
+		while (n > 1) {
+			int half = n / 2;
+			for (int i = 0; i < half; i++) {
+				nodes[i] = makeParent(nodes[2*i], nodes[2*i + 1]);
+			}
+			if (n % 2 == 1) {
+				nodes[half] = nodes[n - 1];
+			}
+			n = (n + 1) / 2;
 		}
+		return nodes[0];
+	}
+	
+	public static BTNode<dataNode> makeParent(BTNode<dataNode> left, BTNode<dataNode> right) {
+		// internal node over two subtrees, as described in join
+		dataNode l = left.getData();
+		dataNode r = right.getData();
+		dataNode d = new dataNode();
+		d.value = (l.max + r.min) / 2;
+		d.count = 0;
+		d.min = l.min;
+		d.max = r.max;
+		d.total = l.total + r.total;
+		return new BTNode<dataNode>(d, left, right, null);
+	}
+	
+	public static int search(BTNode<dataNode> root,double target) {
+		// given a target value walk down from root, going to the left or the right
+		// subtree by comparing the value of the current node to the target, reading
+		// each node's data once. You know that you got to a leaf when the value count
+		// of the node is not equal to 0.
 		
-		if (root.getData().value > target) {
-			return search(root.getLeft(), target);
-		} else {
-			return search(root.getRight(), target);
+		while (true) {
+			dataNode d = root.getData();
+			if (d.value == target) {
+				return d.count;
+			}
+			
+			if (d.count > 0) {
+				return 0;
+			}
+			
+			if (d.value > target) {
+				root = root.getLeft();
+			} else {
+				root = root.getRight();
+			}
+		}
+	}
+	
+	public static int[] searchBatch(BTNode<dataNode> root, double[] targets) {
+		// Answers search(root, targets[i]) for every i in one walk of the tree.
+		// targets must be sorted in increasing order. At each internal node
+		// the targets still in play are split around the split key with one
+		// binary search, so a node is visited once for the whole batch and
+		// subtrees no target falls into are never touched.
+		int[] counts = new int[targets.length];
+		if (root != null) {
+			searchBatch(root, targets, 0, targets.length, counts);
+		}
+		return counts;
+	}
+	
+	private static void searchBatch(BTNode<dataNode> root, double[] targets, int from, int to, int[] counts) {
+		while (from < to) {
+			if (to - from == 1) {
+				// a lone target gains nothing from splitting
+				counts[from] = search(root, targets[from]);
+				return;
+			}
+			dataNode d = root.getData();
+			if (root.getLeft() == null) {
+				// leaf: the count goes to the targets equal to its value
+				int i = firstAtLeast(targets, from, to, d.value);
+				while (i < to && targets[i] == d.value) {
+					counts[i++] = d.count;
+				}
+				return;
+			}
+			if (targets[from] > d.max || targets[to - 1] < d.min) {
+				return;
+			}
+			// [from, mid) goes left, [mid, to) goes right; targets equal
+			// to the split key are answered 0 by search, as here
+			int mid = firstAtLeast(targets, from, to, d.value);
+			int right = mid;
+			while (right < to && targets[right] == d.value) {
+				right++;
+			}
+			if (mid - from < to - right) {
+				searchBatch(root.getLeft(), targets, from, mid, counts);
+				root = root.getRight();
+				from = right;
+			} else {
+				searchBatch(root.getRight(), targets, right, to, counts);
+				root = root.getLeft();
+				to = mid;
+			}
+		}
+	}
+	
+	private static int firstAtLeast(double[] a, int from, int to, double key) {
+		// index of the first element of a[from..to-1] that is >= key, or to
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (a[mid] < key) {
+				from = mid + 1;
+			} else {
+				to = mid;
+			}
+		}
+		return from;
+	}
+	
+	public static int rank(BTNode<dataNode> root, double x) {
+		// number of values in the tree that are smaller than x
+		return countBelow(root, x, false);
+	}
+	
+	public static int rangeCount(BTNode<dataNode> root, double a, double b) {
+		// number of values v in the tree with a <= v <= b
+		if (root == null || a > b) {
+			return 0;
+		}
+		return countBelow(root, b, true) - countBelow(root, a, false);
+	}
+	
+	private static int countBelow(BTNode<dataNode> root, double x, boolean inclusive) {
+		// Walks down one path: everything in a left subtree is smaller than
+		// the split key and everything in the right one is larger, so when
+		// x is above the split key the whole left total is counted at once.
+		int below = 0;
+		while (root != null) {
+			dataNode d = root.getData();
+			if (root.getLeft() == null) {
+				if (d.value < x || (inclusive && d.value == x)) {
+					below += d.count;
+				}
+				break;
+			}
+			if (x > d.value) {
+				below += root.getLeft().getData().total;
+				root = root.getRight();
+			} else {
+				root = root.getLeft();
+			}
+		}
+		return below;
+	}
+	
+	public static double select(BTNode<dataNode> root, int k) {
+		// the k-th smallest value (k = 0 is the minimum), counting repeats,
+		// or NaN when k is outside 0..total-1
+		if (root == null || k < 0 || k >= root.getData().total) {
+			return Double.NaN;
+		}
+		while (root.getLeft() != null) {
+			int leftTotal = root.getLeft().getData().total;
+			if (k < leftTotal) {
+				root = root.getLeft();
+			} else {
+				k -= leftTotal;
+				root = root.getRight();
+			}
+		}
+		return root.getData().value;
+	}
+	
+	public static double quantile(BTNode<dataNode> root, double q) {
+		// nearest-rank quantile for 0 <= q <= 1: the smallest value with at
+		// least a fraction q of the values at or below it
+		if (root == null) {
+			return Double.NaN;
 		}
+		int k = (int) Math.ceil(q * root.getData().total) - 1;
+		return select(root, Math.max(k, 0));
 	}
 	
 	public static void main(String[] args) {
@@ -0,0 +1,51 @@
+public class BatchSearchBenchmark {
+	// Compares Assignment3.searchBatch with one Assignment3.search call per
+	// target, for sorted batches of growing size against a tree of 2^20
+	// distinct values. Half of the targets are absent from the tree.
+	
+	public static void main(String[] args) {
+		int n = 1 << 20;
+		double[] a = new double[n];
+		for (int i = 0; i < n; i++) {
+			a[i] = 2*i;
+		}
+		BTNode<dataNode> root = Assignment3.buildTree(a);
+		java.util.Random rand = new java.util.Random(42);
+		
+		for (int batch = 1 << 10; batch <= 1 << 22; batch <<= 3) {
+			double[] targets = new double[batch];
+			for (int i = 0; i < batch; i++) {
+				targets[i] = rand.nextInt(2*n);
+			}
+			java.util.Arrays.sort(targets);
+			
+			int[] counts = Assignment3.searchBatch(root, targets);
+			for (int i = 0; i < batch; i++) {
+				if (counts[i] != Assignment3.search(root, targets[i])) {
+					throw new IllegalStateException("mismatch at " + targets[i]);
+				}
+			}
+			
+			int reps = Math.max(1, (1 << 22) / batch);
+			for (int round = 1; round <= 3; round++) {
+				long sum = 0;
+				long t0 = System.nanoTime();
+				for (int r = 0; r < reps; r++) {
+					for (int i = 0; i < batch; i++) {
+						sum += Assignment3.search(root, targets[i]);
+					}
+				}
+				long t1 = System.nanoTime();
+				for (int r = 0; r < reps; r++) {
+					sum += Assignment3.searchBatch(root, targets)[batch / 2];
+				}
+				long t2 = System.nanoTime();
+				if (round == 3) {
+					double probes = (double) reps * batch;
+					System.out.printf("batch %8d: search %.1f ns/probe, searchBatch %.1f ns/probe (%d)%n",
+							batch, (t1 - t0) / probes, (t2 - t1) / probes, sum);
+				}
+			}
+		}
+	}
+}
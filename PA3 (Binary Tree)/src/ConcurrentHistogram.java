@@ -0,0 +1,278 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConcurrentHistogram {
+	// A value/count tree that many threads can add values to while others
+	// query it. Producers append to one of several striped buffers, picked
+	// by thread id, so they rarely touch the same lock. A producer that
+	// fills its buffer sorts it and counts equal values itself, outside
+	// any shared lock, and hands the resulting run to the merge queue.
+	//
+	// Whichever producer wins the merge lock files the queued runs into
+	// levels, like a binary counter: level i holds one run built from
+	// about 2^i buffers, and a run landing on a taken level is merged with
+	// it and carried up. Only when the values waiting in the levels reach
+	// a quarter of the distinct values already published (or on flush)
+	// are the levels merged into the distinct value/count arrays and a
+	// fresh tree is built and published. Every rebuild costs O(distinct)
+	// but is paid for by at least distinct/4 new values, so a value costs
+	// O(log) amortized however many distinct values there are. Until the
+	// next rebuild readers see a tree that can be that far behind; flush
+	// makes everything added so far visible.
+	//
+	// Published trees are never modified again, so readers only do a
+	// volatile read and then search without taking any lock.
+	private static final int BUFFER = 4096;
+
+	private static class Stripe {
+		double[] buf = new double[BUFFER];
+		int size = 0;
+	}
+
+	private static class Run {
+		// distinct values in increasing order and their counts, plus the
+		// number of values they stand for
+		double[] values;
+		int[] counts;
+		int n;
+		long total;
+
+		Run(double[] values, int[] counts, int n, long total) {
+			this.values = values;
+			this.counts = counts;
+			this.n = n;
+			this.total = total;
+		}
+	}
+
+	private final Stripe[] stripes;
+	private final ConcurrentLinkedQueue<Run> pending = new ConcurrentLinkedQueue<Run>();
+	private final ReentrantLock mergeLock = new ReentrantLock();
+	private volatile BTNode<dataNode> snapshot = null;
+
+	// only touched under mergeLock: the published distinct values and
+	// their counts, and the runs waiting for the next rebuild
+	private Run merged = new Run(new double[0], new int[0], 0, 0);
+	private java.util.ArrayList<Run> levels = new java.util.ArrayList<Run>();
+	private long waiting = 0;
+
+	public ConcurrentHistogram() {
+		int n = Integer.highestOneBit(4 * Runtime.getRuntime().availableProcessors() - 1) << 1;
+		stripes = new Stripe[n];
+		for (int i = 0; i < n; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+
+	public void add(double x) {
+		if (Double.isNaN(x)) {
+			// NaN equals nothing, so it could never be found or merged
+			return;
+		}
+		Stripe s = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+		double[] full = null;
+		synchronized (s) {
+			s.buf[s.size++] = x;
+			if (s.size == BUFFER) {
+				full = s.buf;
+				s.buf = new double[BUFFER];
+				s.size = 0;
+			}
+		}
+		if (full != null) {
+			pending.add(sortedRun(full, BUFFER));
+			tryMerge();
+		}
+	}
+
+	public void flush() {
+		// makes every value added before this call visible to readers
+		for (Stripe s : stripes) {
+			synchronized (s) {
+				if (s.size > 0) {
+					pending.add(sortedRun(s.buf, s.size));
+					s.buf = new double[BUFFER];
+					s.size = 0;
+				}
+			}
+		}
+		mergeLock.lock();
+		try {
+			mergePending(true);
+		} finally {
+			mergeLock.unlock();
+		}
+	}
+
+	public BTNode<dataNode> snapshot() {
+		// the latest published tree, null while nothing has been published
+		return snapshot;
+	}
+
+	public int search(double target) {
+		BTNode<dataNode> root = snapshot;
+		return root == null ? 0 : Assignment3.search(root, target);
+	}
+
+	public int rangeCount(double a, double b) {
+		return Assignment3.rangeCount(snapshot, a, b);
+	}
+
+	private void tryMerge() {
+		// a producer that loses the race leaves its run to the current
+		// merger; checking again after unlocking makes sure no run is
+		// stranded when the merger finished just before it was queued
+		while (!pending.isEmpty() && mergeLock.tryLock()) {
+			try {
+				mergePending(false);
+			} finally {
+				mergeLock.unlock();
+			}
+		}
+	}
+
+	private void mergePending(boolean publish) {
+		Run r;
+		while ((r = pending.poll()) != null) {
+			waiting += r.total;
+			for (int level = 0; ; level++) {
+				if (level == levels.size()) {
+					levels.add(r);
+					break;
+				}
+				if (levels.get(level) == null) {
+					levels.set(level, r);
+					break;
+				}
+				r = merge(levels.get(level), r);
+				levels.set(level, null);
+			}
+		}
+		if (waiting == 0 || (!publish && waiting < Math.max(BUFFER, merged.n / 4))) {
+			return;
+		}
+
+		Run all = merged;
+		for (int level = 0; level < levels.size(); level++) {
+			if (levels.get(level) != null) {
+				all = merge(all, levels.get(level));
+			}
+		}
+		levels.clear();
+		waiting = 0;
+		merged = all;
+
+		int n = all.n;
+		@SuppressWarnings("unchecked")
+		BTNode<dataNode>[] nodes = (BTNode<dataNode>[]) new BTNode<?>[n];
+		for (int m = 0; m < n; m++) {
+			nodes[m] = Assignment3.makeLeaf(all.values[m], all.counts[m]);
+		}
+		snapshot = Assignment3.joinAll(nodes, n);
+	}
+
+	private static Run sortedRun(double[] buf, int size) {
+		// sorts buf[0..size-1] and folds equal values into one entry each,
+		// reusing buf for the distinct values
+		java.util.Arrays.sort(buf, 0, size);
+		int[] counts = new int[size];
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			if (n > 0 && buf[n - 1] == buf[i]) {
+				counts[n - 1]++;
+			} else {
+				buf[n] = buf[i];
+				counts[n++] = 1;
+			}
+		}
+		return new Run(buf, counts, n, size);
+	}
+
+	private static Run merge(Run a, Run b) {
+		// one run with the values of both, counts added where they meet
+		double[] values = new double[a.n + b.n];
+		int[] counts = new int[a.n + b.n];
+		int n = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.n && j < b.n) {
+			if (a.values[i] < b.values[j]) {
+				values[n] = a.values[i];
+				counts[n++] = a.counts[i++];
+			} else if (a.values[i] > b.values[j]) {
+				values[n] = b.values[j];
+				counts[n++] = b.counts[j++];
+			} else {
+				values[n] = a.values[i];
+				counts[n++] = a.counts[i++] + b.counts[j++];
+			}
+		}
+		while (i < a.n) {
+			values[n] = a.values[i];
+			counts[n++] = a.counts[i++];
+		}
+		while (j < b.n) {
+			values[n] = b.values[j];
+			counts[n++] = b.counts[j++];
+		}
+		return new Run(values, counts, n, a.total + b.total);
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		// ingest throughput for 1..2*cores producers, with one reader
+		// querying the published snapshot the whole time, for values with
+		// few distinct values and for values that are nearly all distinct
+		int cores = Runtime.getRuntime().availableProcessors();
+		final int perThread = 1 << 21;
+		for (final int distinct : new int[] {1000, 1 << 22}) {
+			for (int threads = 1; threads <= 2 * cores; threads *= 2) {
+				final ConcurrentHistogram h = new ConcurrentHistogram();
+				final int nThreads = threads;
+				final java.util.concurrent.atomic.AtomicBoolean done = new java.util.concurrent.atomic.AtomicBoolean();
+				Thread reader = new Thread(new Runnable() {
+					public void run() {
+						long queries = 0;
+						java.util.Random rand = new java.util.Random(1);
+						while (!done.get()) {
+							h.search(rand.nextInt(distinct));
+							queries++;
+						}
+						System.out.printf("   reader ran %d lock-free queries%n", queries);
+					}
+				});
+				Thread[] producers = new Thread[threads];
+				for (int t = 0; t < threads; t++) {
+					final int seed = t;
+					producers[t] = new Thread(new Runnable() {
+						public void run() {
+							java.util.Random rand = new java.util.Random(seed);
+							for (int i = 0; i < perThread; i++) {
+								h.add(rand.nextInt(distinct));
+							}
+						}
+					});
+				}
+
+				reader.start();
+				long t0 = System.nanoTime();
+				for (Thread p : producers) {
+					p.start();
+				}
+				for (Thread p : producers) {
+					p.join();
+				}
+				h.flush();
+				long t1 = System.nanoTime();
+				done.set(true);
+				reader.join();
+
+				int total = h.rangeCount(0, distinct);
+				if (total != nThreads * perThread) {
+					throw new IllegalStateException("lost values: " + total);
+				}
+				System.out.printf("%d distinct, %d producers: %.1f M values/s%n", distinct, threads,
+						nThreads * (double) perThread / ((t1 - t0) / 1e3));
+			}
+		}
+	}
+}
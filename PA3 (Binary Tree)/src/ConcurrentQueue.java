@@ -0,0 +1,238 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+public class ConcurrentQueue<T> {
+	// Lock-free multi-producer multi-consumer version of Queue (Michael and
+	// Scott's algorithm). The list always starts with a dummy node: head
+	// points at it and the first element is in head.next. enqueue links a
+	// new node after the last one with a compare-and-set on its next field
+	// and then swings tail; dequeue swings head to the first element, which
+	// becomes the new dummy. A thread that finds tail lagging behind helps
+	// move it forward before retrying, so no thread ever waits on another.
+	private static final class QNode<T> {
+		volatile T data;
+		volatile QNode<T> next;
+
+		QNode(T data) {
+			this.data = data;
+		}
+	}
+
+	private static final VarHandle HEAD, TAIL, NEXT;
+	static {
+		try {
+			MethodHandles.Lookup l = MethodHandles.lookup();
+			HEAD = l.findVarHandle(ConcurrentQueue.class, "head", QNode.class);
+			TAIL = l.findVarHandle(ConcurrentQueue.class, "tail", QNode.class);
+			NEXT = l.findVarHandle(QNode.class, "next", QNode.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private volatile QNode<T> head;
+	private volatile QNode<T> tail;
+
+	public ConcurrentQueue() {
+		QNode<T> dummy = new QNode<T>(null);
+		head = dummy;
+		tail = dummy;
+	}
+
+	public void enqueue(T element) {
+		QNode<T> n = new QNode<T>(element);
+		while (true) {
+			QNode<T> last = tail;
+			QNode<T> next = last.next;
+			if (last != tail) {
+				continue;
+			}
+			if (next == null) {
+				if (NEXT.compareAndSet(last, null, n)) {
+					TAIL.compareAndSet(this, last, n);
+					return;
+				}
+			} else {
+				TAIL.compareAndSet(this, last, next);
+			}
+		}
+	}
+
+	public T dequeue() {
+		// null when the queue is empty, like Queue
+		while (true) {
+			QNode<T> first = head;
+			QNode<T> last = tail;
+			QNode<T> next = first.next;
+			if (first != head) {
+				continue;
+			}
+			if (next == null) {
+				return null;
+			}
+			if (first == last) {
+				TAIL.compareAndSet(this, last, next);
+				continue;
+			}
+			T element = next.data;
+			if (HEAD.compareAndSet(this, first, next)) {
+				next.data = null;
+				return element;
+			}
+		}
+	}
+
+	public boolean isEmpty() {
+		return head.next == null;
+	}
+
+	public int size() {
+		// counts the nodes, so it is O(n) and only a snapshot while
+		// other threads are changing the queue
+		int count = 0;
+		for (QNode<T> n = head.next; n != null; n = n.next) {
+			count++;
+		}
+		return count;
+	}
+
+	public void traverse() {
+		// newest first, like Queue
+		java.util.ArrayList<T> items = new java.util.ArrayList<T>();
+		for (QNode<T> n = head.next; n != null; n = n.next) {
+			items.add(n.data);
+		}
+		for (int i = items.size() - 1; i >= 0; i--) {
+			System.out.print(items.get(i) + " ");
+		}
+	}
+
+	private interface Ops {
+		boolean offer(Integer x);
+		Integer poll();
+	}
+
+	private static long run(final Ops q, int producers, int consumers, final int perProducer,
+			final boolean check) throws InterruptedException {
+		// producer p enqueues p*perProducer .. (p+1)*perProducer-1 in order;
+		// with check set, every consumer verifies that it sees each
+		// producer's values in increasing order, and at the end every value
+		// must have been taken exactly once
+		final int total = producers * perProducer;
+		final java.util.concurrent.atomic.AtomicInteger taken = new java.util.concurrent.atomic.AtomicInteger();
+		final java.util.concurrent.atomic.AtomicIntegerArray seen = new java.util.concurrent.atomic.AtomicIntegerArray(check ? total : 0);
+		final int nProducers = producers;
+		Thread[] threads = new Thread[producers + consumers];
+		for (int p = 0; p < producers; p++) {
+			final int base = p * perProducer;
+			threads[p] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < perProducer; i++) {
+						while (!q.offer(base + i)) {
+							Thread.onSpinWait();
+						}
+					}
+				}
+			});
+		}
+		for (int c = 0; c < consumers; c++) {
+			threads[producers + c] = new Thread(new Runnable() {
+				public void run() {
+					int[] last = new int[nProducers];
+					java.util.Arrays.fill(last, -1);
+					while (taken.get() < total) {
+						Integer x = q.poll();
+						if (x == null) {
+							Thread.onSpinWait();
+							continue;
+						}
+						taken.incrementAndGet();
+						if (check) {
+							int p = x / perProducer;
+							if (x <= last[p]) {
+								throw new IllegalStateException("out of order: " + x + " after " + last[p]);
+							}
+							last[p] = x;
+							seen.incrementAndGet(x);
+						}
+					}
+				}
+			});
+		}
+		long t0 = System.nanoTime();
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		long t1 = System.nanoTime();
+		if (check) {
+			for (int i = 0; i < total; i++) {
+				if (seen.get(i) != 1) {
+					throw new IllegalStateException("value " + i + " taken " + seen.get(i) + " times");
+				}
+			}
+		}
+		return t1 - t0;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		final ConcurrentQueue<Integer> mine = new ConcurrentQueue<Integer>();
+		Ops ours = new Ops() {
+			public boolean offer(Integer x) {
+				mine.enqueue(x);
+				return true;
+			}
+			public Integer poll() {
+				return mine.dequeue();
+			}
+		};
+
+		// stress: many small rounds with every mix of 1..4 producers and consumers
+		for (int round = 0; round < 20; round++) {
+			for (int p = 1; p <= 4; p++) {
+				for (int c = 1; c <= 4; c++) {
+					run(ours, p, c, 5000, true);
+				}
+			}
+		}
+		if (!mine.isEmpty()) {
+			throw new IllegalStateException("queue not empty after stress test");
+		}
+		System.out.println("stress test passed");
+
+		final java.util.concurrent.ConcurrentLinkedQueue<Integer> clq = new java.util.concurrent.ConcurrentLinkedQueue<Integer>();
+		final java.util.concurrent.ArrayBlockingQueue<Integer> abq = new java.util.concurrent.ArrayBlockingQueue<Integer>(1 << 16);
+		Ops linked = new Ops() {
+			public boolean offer(Integer x) {
+				return clq.offer(x);
+			}
+			public Integer poll() {
+				return clq.poll();
+			}
+		};
+		Ops array = new Ops() {
+			public boolean offer(Integer x) {
+				return abq.offer(x);
+			}
+			public Integer poll() {
+				return abq.poll();
+			}
+		};
+
+		int perProducer = 1 << 20;
+		for (int threads = 1; threads <= 4; threads *= 2) {
+			for (int round = 1; round <= 3; round++) {
+				long a = run(ours, threads, threads, perProducer, false);
+				long b = run(linked, threads, threads, perProducer, false);
+				long c = run(array, threads, threads, perProducer, false);
+				if (round == 3) {
+					double ops = (double) threads * perProducer * 1e3;
+					System.out.printf("%d+%d threads: ConcurrentQueue %.1f, ConcurrentLinkedQueue %.1f, ArrayBlockingQueue %.1f M ops/s%n",
+							threads, threads, ops / a, ops / b, ops / c);
+				}
+			}
+		}
+	}
+}
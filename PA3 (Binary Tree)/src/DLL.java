@@ -1,8 +1,17 @@
-public class DLL<T> {
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class DLL<T> implements Iterable<T> {
 	private Node<T> first;
 	private Node<T> last;
 	private int count;
 	private Node<T> current;
+	private int modCount;	// changes on every add/delete, iterators use it to fail fast
 
 	public DLL() {
 		this.first=null;
@@ -41,6 +50,7 @@ public class DLL<T> {
 		}
 		this.first=n;
 		count++;
+		modCount++;
 	}
 	
 	public void addLast(T data) {
@@ -53,6 +63,7 @@ public class DLL<T> {
 		}
 		this.last=n;
 		count++;
+		modCount++;
 	}
 
 	public void deleteFirst() {
@@ -66,6 +77,7 @@ public class DLL<T> {
 				this.last=null;
 			}
 			count--;
+			modCount++;
 		}
 	}
 
@@ -80,6 +92,7 @@ public class DLL<T> {
 				this.first=null;
 			}
 			count--;
+			modCount++;
 		}
 	}
 
@@ -98,13 +111,110 @@ public class DLL<T> {
 	}
 	
 	public String toString() {
-		String ret="";
+		StringBuilder ret=new StringBuilder();
 		Node<T> current=this.first;
 		while (current!=null) {
-			ret=ret+"+"+current.getData();
+			ret.append('+').append(current.getData());
 			current=current.getNext();
 		}
-		return ret;
+		return ret.toString();
+	}
+
+	public Iterator<T> iterator() {
+		// each iterator has its own position, unlike getFirst/getNext
+		return new DLLIterator();
+	}
+
+	public Spliterator<T> spliterator() {
+		return new DLLSpliterator(first,count,modCount);
+	}
+
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(),false);
+	}
+
+	public Stream<T> parallelStream() {
+		return StreamSupport.stream(spliterator(),true);
+	}
+
+	private class DLLIterator implements Iterator<T> {
+		private Node<T> next=first;
+		private int expectedModCount=modCount;
+
+		public boolean hasNext() {
+			return next!=null;
+		}
+
+		public T next() {
+			if (modCount!=expectedModCount)
+				throw new ConcurrentModificationException();
+			if (next==null)
+				throw new NoSuchElementException();
+			T data=next.getData();
+			next=next.getNext();
+			return data;
+		}
+	}
+
+	private class DLLSpliterator implements Spliterator<T> {
+		// covers the size nodes starting at node; trySplit walks to the
+		// middle and hands the first half to a new spliterator, so both
+		// halves always know their exact size
+		private Node<T> node;
+		private int size;
+		private int expectedModCount;
+
+		DLLSpliterator(Node<T> node,int size,int expectedModCount) {
+			this.node=node;
+			this.size=size;
+			this.expectedModCount=expectedModCount;
+		}
+
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (modCount!=expectedModCount)
+				throw new ConcurrentModificationException();
+			if (size==0)
+				return false;
+			T data=node.getData();
+			node=node.getNext();
+			size--;
+			action.accept(data);
+			return true;
+		}
+
+		public void forEachRemaining(Consumer<? super T> action) {
+			Node<T> n=node;
+			int remaining=size;
+			node=null;
+			size=0;
+			while (remaining>0) {
+				action.accept(n.getData());
+				n=n.getNext();
+				remaining--;
+			}
+			if (modCount!=expectedModCount)
+				throw new ConcurrentModificationException();
+		}
+
+		public Spliterator<T> trySplit() {
+			if (size<2)
+				return null;
+			int half=size/2;
+			Node<T> start=node;
+			for (int i=0;i<half;i++) {
+				node=node.getNext();
+			}
+			size-=half;
+			return new DLLSpliterator(start,half,expectedModCount);
+		}
+
+		public long estimateSize() {
+			return size;
+		}
+
+		public int characteristics() {
+			return Spliterator.ORDERED|Spliterator.SIZED|Spliterator.SUBSIZED;
+		}
 	}
 	
 }
@@ -0,0 +1,60 @@
+public class DoubleArrayQueue {
+	// ArrayQueue specialized to double: the values sit unboxed in a
+	// double[], 8 bytes per element and no objects at all.
+	private double[] items;
+	private int head;	// position of the oldest element
+	private int count;
+
+	public DoubleArrayQueue() {
+		this(16);
+	}
+
+	public DoubleArrayQueue(int capacity) {
+		items=new double[Integer.highestOneBit(Math.max(capacity-1,1))<<1];
+		head=0;
+		count=0;
+	}
+
+	public void enqueue(double element) {
+		if (count==items.length) {
+			grow();
+		}
+		items[(head+count)&(items.length-1)]=element;
+		count++;
+	}
+
+	public double dequeue() {
+		// NaN when the queue is empty, where Queue returns null
+		double element=Double.NaN;
+		if (count>0) {
+			element=items[head];
+			head=(head+1)&(items.length-1);
+			count--;
+		}
+		return element;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return count==0;
+	}
+
+	public void traverse() {
+		// newest first, like Queue
+		for (int i=count-1;i>=0;i--) {
+			System.out.print(items[(head+i)&(items.length-1)]+" ");
+		}
+	}
+
+	private void grow() {
+		double[] bigger=new double[2*items.length];
+		int firstPart=Math.min(count,items.length-head);
+		System.arraycopy(items,head,bigger,0,firstPart);
+		System.arraycopy(items,0,bigger,firstPart,count-firstPart);
+		items=bigger;
+		head=0;
+	}
+}
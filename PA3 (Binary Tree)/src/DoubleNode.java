@@ -0,0 +1,86 @@
+public final class DoubleNode {
+	// A node of the value/count tree specialized to double keys. The fields
+	// are read directly instead of through BTNode.getData() and a dataNode,
+	// and the class is final, so the search loop below is one monomorphic
+	// field walk the JIT can keep in registers. Internal nodes hold the split
+	// key and count 0, leaves hold the value and its count.
+	public final double key;
+	public final int count;
+	public final DoubleNode left, right;
+
+	public DoubleNode(double key, int count, DoubleNode left, DoubleNode right) {
+		this.key = key;
+		this.count = count;
+		this.left = left;
+		this.right = right;
+	}
+
+	public static DoubleNode from(BTNode<dataNode> root) {
+		// copies a tree built by Assignment3 into DoubleNodes
+		if (root == null) {
+			return null;
+		}
+		return new DoubleNode(root.getData().value, root.getData().count,
+				from(root.getLeft()), from(root.getRight()));
+	}
+
+	public static int search(DoubleNode root, double target) {
+		// same answer as Assignment3.search, reading the fields directly
+		while (root != null) {
+			double key = root.key;
+			if (key == target) {
+				return root.count;
+			}
+			if (root.left == null) {
+				return 0;
+			}
+			root = key > target ? root.left : root.right;
+		}
+		return 0;
+	}
+
+	public String toString() {
+		return "(" + key + "," + count + ")";
+	}
+
+	public static void main(String[] args) {
+		// throughput of the generic BTNode search against this one, on
+		// trees small enough to stay in cache and large enough not to
+		java.util.Random rand = new java.util.Random(42);
+		for (int n = 1 << 10; n <= 1 << 20; n <<= 5) {
+			double[] a = new double[n];
+			for (int i = 0; i < n; i++) {
+				a[i] = 2*i;
+			}
+			BTNode<dataNode> generic = Assignment3.buildTree(a);
+			DoubleNode special = from(generic);
+
+			double[] probes = new double[1 << 20];
+			for (int i = 0; i < probes.length; i++) {
+				probes[i] = rand.nextInt(2*n);
+			}
+			for (int i = 0; i < probes.length; i++) {
+				if (search(special, probes[i]) != Assignment3.search(generic, probes[i])) {
+					throw new IllegalStateException("mismatch at " + probes[i]);
+				}
+			}
+
+			for (int round = 1; round <= 5; round++) {
+				long sum = 0;
+				long t0 = System.nanoTime();
+				for (int i = 0; i < probes.length; i++) {
+					sum += Assignment3.search(generic, probes[i]);
+				}
+				long t1 = System.nanoTime();
+				for (int i = 0; i < probes.length; i++) {
+					sum += search(special, probes[i]);
+				}
+				long t2 = System.nanoTime();
+				if (round == 5) {
+					System.out.printf("%8d leaves: BTNode %.1f M searches/s, DoubleNode %.1f M searches/s (%d)%n", n,
+							probes.length / ((t1 - t0) / 1e3), probes.length / ((t2 - t1) / 1e3), sum);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+public class EytzingerTree {
+	// The leaves of a value/count tree stored in Eytzinger (breadth-first) order:
+	// the children of slot k are slots 2k and 2k+1, so a search only ever reads
+	// the two parallel arrays and never follows a reference. Slot 0 is unused,
+	// it holds NaN so that "not found" falls out of the final comparison.
+	private double[] keys;
+	private int[] counts;
+	private int n;
+	private int next;
+
+	public EytzingerTree(double[] values, int[] counts, int n) {
+		// values must be sorted and distinct, counts[i] is the count of values[i]
+		this.n = n;
+		this.keys = new double[n + 1];
+		this.counts = new int[n + 1];
+		this.keys[0] = Double.NaN;
+		this.next = 0;
+		fill(1, values, counts);
+	}
+
+	private void fill(int k, double[] values, int[] c) {
+		// in-order walk of the implicit tree hands out the sorted values
+		if (k <= n) {
+			fill(2*k, values, c);
+			keys[k] = values[next];
+			counts[k] = c[next];
+			next++;
+			fill(2*k + 1, values, c);
+		}
+	}
+
+	public static EytzingerTree fromTree(BTNode<dataNode> root) {
+		// collects the leaves of a tree built by Assignment3.join in order
+		double[] values = new double[16];
+		int[] counts = new int[16];
+		int n = 0;
+
+		java.util.ArrayDeque<BTNode<dataNode>> stack = new java.util.ArrayDeque<BTNode<dataNode>>();
+		BTNode<dataNode> current = root;
+		while (current != null || !stack.isEmpty()) {
+			while (current != null) {
+				stack.push(current);
+				current = current.getLeft();
+			}
+			current = stack.pop();
+			if (current.getLeft() == null && current.getRight() == null) {
+				if (n == values.length) {
+					values = java.util.Arrays.copyOf(values, 2*n);
+					counts = java.util.Arrays.copyOf(counts, 2*n);
+				}
+				values[n] = current.getData().value;
+				counts[n] = current.getData().count;
+				n++;
+			}
+			current = current.getRight();
+		}
+		return new EytzingerTree(values, counts, n);
+	}
+
+	public int size() {
+		return n;
+	}
+
+	public int search(double target) {
+		// same answer as Assignment3.search: the count of target, 0 if absent.
+		// The descent has no data-dependent branch: every step goes down one
+		// level, adding 1 when the key is smaller than the target. At the end
+		// k encodes the whole path; dropping the trailing right turns and the
+		// last left turn leaves the slot of the first key >= target (0 if none).
+		int k = 1;
+		while (k <= n) {
+			k = 2*k + (keys[k] < target ? 1 : 0);
+		}
+		k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+		return keys[k] == target ? counts[k] : 0;
+	}
+
+	public static void main(String[] args) {
+		// compares this layout with the pointer-based Assignment3.search
+		// on a tree with 2^18 distinct values, half of the probes missing
+		int n = 1 << 18;
+		double[] values = new double[n];
+		int[] counts = new int[n];
+		Queue<BTNode<dataNode>> q = new Queue<BTNode<dataNode>>();
+		for (int i = 0; i < n; i++) {
+			values[i] = 2*i;
+			counts[i] = 1 + i % 3;
+			q.enqueue(Assignment3.makeLeaf(values[i], counts[i]));
+		}
+		while (q.size() > 1) {
+			q = Assignment3.join(q);
+		}
+		BTNode<dataNode> root = q.dequeue();
+		EytzingerTree tree = fromTree(root);
+
+		java.util.Random rand = new java.util.Random(42);
+		double[] probes = new double[1 << 20];
+		for (int i = 0; i < probes.length; i++) {
+			probes[i] = rand.nextInt(2*n);
+		}
+		for (int i = 0; i < probes.length; i++) {
+			if (tree.search(probes[i]) != Assignment3.search(root, probes[i])) {
+				throw new IllegalStateException("mismatch at " + probes[i]);
+			}
+		}
+
+		for (int round = 1; round <= 5; round++) {
+			long sum = 0;
+			long t0 = System.nanoTime();
+			for (int i = 0; i < probes.length; i++) {
+				sum += Assignment3.search(root, probes[i]);
+			}
+			long t1 = System.nanoTime();
+			for (int i = 0; i < probes.length; i++) {
+				sum += tree.search(probes[i]);
+			}
+			long t2 = System.nanoTime();
+			System.out.printf("round %d: BTNode %.1f ns/search, Eytzinger %.1f ns/search (%d)%n", round,
+					(t1 - t0) / (double) probes.length, (t2 - t1) / (double) probes.length, sum);
+		}
+	}
+}
@@ -0,0 +1,249 @@
+public class HistogramTree {
+	// A value/count tree, shaped like the one Assignment3.join builds, that
+	// can grow and shrink one value at a time. Every internal node keeps the
+	// min, max, split key (value) and total of its subtree up to date.
+	//
+	// Depth is kept logarithmic scapegoat style: when an insert ends up
+	// deeper than log(leaves) / log(1/ALPHA), some ancestor has a child
+	// holding more than ALPHA of its leaves, and that ancestor's subtree is
+	// rebuilt perfectly balanced with Assignment3.joinAll. Deletes rebuild
+	// the whole tree once a 1-ALPHA fraction of its leaves is gone.
+	private static final double ALPHA = 2.0 / 3;
+
+	private BTNode<dataNode> root;
+	private int leaves;	// number of distinct values
+	private int maxLeaves;	// most leaves since the last full rebuild
+	@SuppressWarnings("unchecked")
+	private BTNode<dataNode>[] path = (BTNode<dataNode>[]) new BTNode<?>[64];
+
+	public HistogramTree() {
+		root = null;
+		leaves = 0;
+		maxLeaves = 0;
+	}
+
+	public HistogramTree(BTNode<dataNode> root) {
+		// takes over a tree built by Assignment3.join or buildTree
+		this.root = root;
+		leaves = root == null ? 0 : countLeaves(root);
+		maxLeaves = leaves;
+	}
+
+	public BTNode<dataNode> getRoot() {
+		return root;
+	}
+
+	public int size() {
+		return leaves;
+	}
+
+	public int search(double target) {
+		if (root == null) {
+			return 0;
+		}
+		return Assignment3.search(root, target);
+	}
+
+	public void insert(double x) {
+		if (root == null) {
+			root = Assignment3.makeLeaf(x, 1);
+			leaves = 1;
+			maxLeaves = Math.max(maxLeaves, leaves);
+			return;
+		}
+
+		int depth = descend(x);
+		BTNode<dataNode> leaf = path[depth];
+		if (leaf.getData().value == x) {
+			leaf.getData().count++;
+			leaf.getData().total++;
+			fixPath(depth - 1);
+			return;
+		}
+
+		// the leaf is replaced by an internal node over it and the new leaf
+		BTNode<dataNode> newLeaf = Assignment3.makeLeaf(x, 1);
+		BTNode<dataNode> parent;
+		if (x < leaf.getData().value) {
+			parent = Assignment3.makeParent(newLeaf, leaf);
+		} else {
+			parent = Assignment3.makeParent(leaf, newLeaf);
+		}
+		replace(depth - 1, leaf, parent);
+		path[depth] = parent;
+		push(depth + 1, newLeaf);
+		depth++;
+		leaves++;
+		maxLeaves = Math.max(maxLeaves, leaves);
+		fixPath(depth - 1);
+
+		if (depth > Math.log(leaves) / Math.log(1 / ALPHA)) {
+			// walk back up, adding up subtree sizes, until a node is too
+			// lopsided; one is guaranteed to exist on the path
+			int size = 1;
+			for (int i = depth - 1; i >= 0; i--) {
+				BTNode<dataNode> node = path[i];
+				BTNode<dataNode> other = node.getLeft() == path[i + 1] ? node.getRight() : node.getLeft();
+				int nodeSize = size + countLeaves(other);
+				if (size > ALPHA * nodeSize) {
+					replace(i - 1, node, rebuild(node, nodeSize));
+					break;
+				}
+				size = nodeSize;
+			}
+		}
+	}
+
+	public boolean delete(double x) {
+		// removes one occurrence of x, returns false if x is not in the tree
+		if (root == null) {
+			return false;
+		}
+
+		int depth = descend(x);
+		BTNode<dataNode> leaf = path[depth];
+		if (leaf.getData().value != x) {
+			return false;
+		}
+		if (leaf.getData().count > 1) {
+			leaf.getData().count--;
+			leaf.getData().total--;
+			fixPath(depth - 1);
+			return true;
+		}
+
+		// the leaf's parent is replaced by the leaf's sibling
+		leaves--;
+		if (depth == 0) {
+			root = null;
+			return true;
+		}
+		BTNode<dataNode> parent = path[depth - 1];
+		BTNode<dataNode> sibling = parent.getLeft() == leaf ? parent.getRight() : parent.getLeft();
+		replace(depth - 2, parent, sibling);
+		fixPath(depth - 2);
+
+		if (leaves < ALPHA * maxLeaves) {
+			root = rebuild(root, leaves);
+			maxLeaves = leaves;
+		}
+		return true;
+	}
+
+	public int depth() {
+		return depth(root);
+	}
+
+	private int depth(BTNode<dataNode> node) {
+		if (node == null || node.getLeft() == null) {
+			return 0;
+		}
+		return 1 + Math.max(depth(node.getLeft()), depth(node.getRight()));
+	}
+
+	private int descend(double x) {
+		// fills path with the nodes from the root to the leaf where x
+		// belongs and returns the index of that leaf
+		int depth = 0;
+		BTNode<dataNode> node = root;
+		while (node.getLeft() != null) {
+			push(depth++, node);
+			node = x < node.getData().value ? node.getLeft() : node.getRight();
+		}
+		push(depth, node);
+		return depth;
+	}
+
+	private void push(int i, BTNode<dataNode> node) {
+		if (i == path.length) {
+			path = java.util.Arrays.copyOf(path, 2 * path.length);
+		}
+		path[i] = node;
+	}
+
+	private void replace(int parentIndex, BTNode<dataNode> oldChild, BTNode<dataNode> newChild) {
+		// puts newChild where oldChild was, under path[parentIndex] or as the root
+		if (parentIndex < 0) {
+			root = newChild;
+		} else if (path[parentIndex].getLeft() == oldChild) {
+			path[parentIndex].setLeft(newChild);
+		} else {
+			path[parentIndex].setRight(newChild);
+		}
+	}
+
+	private void fixPath(int from) {
+		// recomputes min, max, split key and total of path[from] up to the root
+		for (int i = from; i >= 0; i--) {
+			dataNode d = path[i].getData();
+			dataNode l = path[i].getLeft().getData();
+			dataNode r = path[i].getRight().getData();
+			d.min = l.min;
+			d.max = r.max;
+			d.value = (l.max + r.min) / 2;
+			d.total = l.total + r.total;
+		}
+	}
+
+	private BTNode<dataNode> rebuild(BTNode<dataNode> node, int size) {
+		// collects the leaves of node in order and joins them again
+		if (node == null) {
+			return null;
+		}
+		@SuppressWarnings("unchecked")
+		BTNode<dataNode>[] nodes = (BTNode<dataNode>[]) new BTNode<?>[size];
+		int n = 0;
+		java.util.ArrayDeque<BTNode<dataNode>> stack = new java.util.ArrayDeque<BTNode<dataNode>>();
+		stack.push(node);
+		while (!stack.isEmpty()) {
+			BTNode<dataNode> current = stack.pop();
+			if (current.getLeft() == null) {
+				nodes[n++] = current;
+			} else {
+				stack.push(current.getRight());
+				stack.push(current.getLeft());
+			}
+		}
+		return Assignment3.joinAll(nodes, n);
+	}
+
+	private static int countLeaves(BTNode<dataNode> node) {
+		if (node.getLeft() == null) {
+			return 1;
+		}
+		return countLeaves(node.getLeft()) + countLeaves(node.getRight());
+	}
+
+	public static void main(String[] args) {
+		// sorted inserts are the worst case for an unbalanced tree: every new
+		// value lands on the rightmost path
+		HistogramTree tree = new HistogramTree();
+		int n = 1 << 20;
+		long t0 = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			tree.insert(i);
+			if (i % 3 == 0) {
+				tree.insert(i);
+			}
+		}
+		long t1 = System.nanoTime();
+		System.out.printf("%d sorted inserts: %.0f ns/insert, %d leaves, depth %d%n",
+				n + (n + 2) / 3, (t1 - t0) / (double) (n + (n + 2) / 3), tree.size(), tree.depth());
+
+		for (int i = 0; i < n; i += 2) {
+			tree.delete(i);
+		}
+		long t2 = System.nanoTime();
+		System.out.printf("%d deletes: %.0f ns/delete, %d leaves, depth %d%n",
+				n / 2, (t2 - t1) / (double) (n / 2), tree.size(), tree.depth());
+
+		for (int i = 0; i < n; i++) {
+			int expected = i % 2 == 0 ? (i % 3 == 0 ? 1 : 0) : (i % 3 == 0 ? 2 : 1);
+			if (tree.search(i) != expected) {
+				throw new IllegalStateException("wrong count for " + i + ": " + tree.search(i));
+			}
+		}
+		System.out.println("counts check out, rangeCount(0, n) = "
+				+ Assignment3.rangeCount(tree.getRoot(), 0, n));
+	}
+}
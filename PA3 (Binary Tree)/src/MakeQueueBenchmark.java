@@ -0,0 +1,59 @@
+public class MakeQueueBenchmark {
+	// Times the leaf builders of Assignment3 on growing inputs. makeQueue
+	// is quadratic, so it is only run while it takes a reasonable time.
+	
+	public static double[] sortedInput(int n, java.util.Random rand) {
+		// about three copies of each value, in increasing order
+		double[] a = new double[n];
+		for (int i = 0; i < n; i++) {
+			a[i] = rand.nextInt(n / 3 + 1);
+		}
+		java.util.Arrays.sort(a);
+		return a;
+	}
+	
+	public static void checkSame(Queue<BTNode<dataNode>> q1, Queue<BTNode<dataNode>> q2) {
+		if (q1.size() != q2.size()) {
+			throw new IllegalStateException("leaf counts differ: " + q1.size() + " vs " + q2.size());
+		}
+		while (!q1.isEmpty()) {
+			dataNode d1 = q1.dequeue().getData();
+			dataNode d2 = q2.dequeue().getData();
+			if (d1.value != d2.value || d1.count != d2.count) {
+				throw new IllegalStateException("leaves differ: " + d1 + " vs " + d2);
+			}
+		}
+	}
+	
+	public static void main(String[] args) {
+		java.util.Random rand = new java.util.Random(42);
+		System.out.println("       n   makeQueue ms   sorted ms   unsorted ms");
+		for (int n = 1 << 10; n <= 1 << 22; n <<= 1) {
+			double[] a = sortedInput(n, rand);
+			double[] shuffled = java.util.Arrays.copyOf(a, n);
+			for (int i = n - 1; i > 0; i--) {
+				int j = rand.nextInt(i + 1);
+				double t = shuffled[i];
+				shuffled[i] = shuffled[j];
+				shuffled[j] = t;
+			}
+			
+			String quadratic = "-";
+			if (n <= 1 << 15) {
+				long t0 = System.nanoTime();
+				Queue<BTNode<dataNode>> q = Assignment3.makeQueue(a);
+				quadratic = String.format("%.2f", (System.nanoTime() - t0) / 1e6);
+				checkSame(q, Assignment3.makeQueueSorted(a));
+			}
+			
+			long t0 = System.nanoTime();
+			Queue<BTNode<dataNode>> q1 = Assignment3.makeQueueSorted(a);
+			long t1 = System.nanoTime();
+			Queue<BTNode<dataNode>> q2 = Assignment3.makeQueueUnsorted(shuffled);
+			long t2 = System.nanoTime();
+			checkSame(q1, q2);
+			
+			System.out.printf("%8d %14s %11.2f %13.2f%n", n, quadratic, (t1 - t0) / 1e6, (t2 - t1) / 1e6);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class MappedTree {
+	// A value/count tree saved to a file and searched straight from a
+	// memory-mapped view of it, without building any BTNode objects.
+	//
+	// File layout (little-endian):
+	//   header:  int magic, int version, long number of nodes
+	//   records: one 16 byte record per node, in pre-order
+	//            double key   split key of an internal node, value of a leaf
+	//            int count    0 for an internal node, the count of a leaf
+	//            int right    record index of the right child (leaves: 0)
+	// The left child of an internal node is always the next record, so a
+	// search reads one record per level and only follows right links.
+	// Files larger than 2GB are mapped as several segments. Record indices
+	// are ints, so a tree can have at most Integer.MAX_VALUE nodes (a file
+	// of up to 32GB); write refuses larger trees before mapping anything.
+	private static final int MAGIC = 0x48545245;	// "HTRE"
+	private static final int VERSION = 1;
+	private static final int HEADER = 16;
+	private static final int RECORD = 16;
+	private static final int SHIFT = 26;	// records per segment: 2^26 (1GB)
+	private static final int MASK = (1 << SHIFT) - 1;
+
+	private MappedByteBuffer[] segments;
+	private long nodes;
+
+	private MappedTree(MappedByteBuffer[] segments, long nodes) {
+		this.segments = segments;
+		this.nodes = nodes;
+	}
+
+	public static void write(BTNode<dataNode> root, String file) throws IOException {
+		long n = root == null ? 0 : countNodes(root);
+		if (n > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(n + " nodes do not fit in a saved tree, the limit is " + Integer.MAX_VALUE);
+		}
+		try (FileChannel ch = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			MappedByteBuffer header = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(0, MAGIC);
+			header.putInt(4, VERSION);
+			header.putLong(8, n);
+			MappedByteBuffer[] segments = map(ch, FileChannel.MapMode.READ_WRITE, n);
+			if (root != null) {
+				writeNode(segments, root, 0);
+			}
+			for (MappedByteBuffer segment : segments) {
+				segment.force();
+			}
+			header.force();
+		}
+	}
+
+	public static MappedTree open(String file) throws IOException {
+		// the mapping stays valid after the channel is closed
+		try (FileChannel ch = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+			MappedByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException(file + " is not a saved histogram tree");
+			}
+			long n = header.getLong(8);
+			if (n < 0 || n > Integer.MAX_VALUE) {
+				throw new IOException(file + " has a bad node count " + n);
+			}
+			if (ch.size() < HEADER + n * RECORD) {
+				throw new IOException(file + " is truncated");
+			}
+			return new MappedTree(map(ch, FileChannel.MapMode.READ_ONLY, n), n);
+		}
+	}
+
+	public long size() {
+		// number of nodes, internal ones included
+		return nodes;
+	}
+
+	public int search(double target) {
+		// same answer as Assignment3.search on the saved tree
+		if (nodes == 0) {
+			return 0;
+		}
+		int i = 0;
+		while (true) {
+			MappedByteBuffer segment = segments[i >>> SHIFT];
+			int offset = (i & MASK) * RECORD;
+			double key = segment.getDouble(offset);
+			int count = segment.getInt(offset + 8);
+			if (key == target) {
+				return count;
+			}
+			if (count > 0) {
+				return 0;
+			}
+			i = key > target ? i + 1 : segment.getInt(offset + 12);
+		}
+	}
+
+	private static MappedByteBuffer[] map(FileChannel ch, FileChannel.MapMode mode, long n) throws IOException {
+		int count = (int) ((n + MASK) >>> SHIFT);
+		MappedByteBuffer[] segments = new MappedByteBuffer[count];
+		for (int s = 0; s < count; s++) {
+			long first = (long) s << SHIFT;
+			long records = Math.min(n - first, 1L << SHIFT);
+			segments[s] = ch.map(mode, HEADER + first * RECORD, records * RECORD);
+			segments[s].order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return segments;
+	}
+
+	private static int writeNode(MappedByteBuffer[] segments, BTNode<dataNode> node, int i) {
+		// writes node at record i and its subtree after it,
+		// returns the index of the first record after the subtree
+		dataNode d = node.getData();
+		MappedByteBuffer segment = segments[i >>> SHIFT];
+		int offset = (i & MASK) * RECORD;
+		segment.putDouble(offset, d.value);
+		segment.putInt(offset + 8, d.count);
+		if (node.getLeft() == null) {
+			segment.putInt(offset + 12, 0);
+			return i + 1;
+		}
+		int right = writeNode(segments, node.getLeft(), i + 1);
+		segment.putInt(offset + 12, right);
+		return writeNode(segments, node.getRight(), right);
+	}
+
+	private static long countNodes(BTNode<dataNode> node) {
+		if (node.getLeft() == null) {
+			return 1;
+		}
+		return 1 + countNodes(node.getLeft()) + countNodes(node.getRight());
+	}
+
+	public static void main(String[] args) throws IOException {
+		// saves the tree of the assignment example and a large one,
+		// then searches the mapped copies; the file name can be given,
+		// otherwise a temporary file is used and deleted at the end
+		java.nio.file.Path temp = args.length > 0 ? null : java.nio.file.Files.createTempFile("histogram", ".tree");
+		String file = args.length > 0 ? args[0] : temp.toString();
+		try {
+			double[] a = {1,2.3,5.8,5.8,7.2,7.2,7.2,8,9.1,9.2,10,10.3,10.3,11.9,12.1,12.3,12.5,13, 14, 15, 16, 16.2, 16.2, 16.5, 17};
+			BTNode<dataNode> root = Assignment3.buildTree(a);
+			write(root, file);
+			MappedTree mapped = open(file);
+			System.out.println(mapped.search(5.8) + " " + mapped.search(7.2) + " " + mapped.search(7.3));
+
+			int n = 1 << 22;
+			double[] big = new double[n];
+			for (int i = 0; i < n; i++) {
+				big[i] = i / 2;
+			}
+			root = Assignment3.buildTree(big);
+			long t0 = System.nanoTime();
+			write(root, file);
+			long t1 = System.nanoTime();
+			mapped = open(file);
+			long t2 = System.nanoTime();
+			java.util.Random rand = new java.util.Random(42);
+			long sum = 0;
+			for (int i = 0; i < 1 << 20; i++) {
+				double target = rand.nextInt(n);
+				int count = mapped.search(target);
+				if (count != Assignment3.search(root, target)) {
+					throw new IllegalStateException("mismatch at " + target);
+				}
+				sum += count;
+			}
+			System.out.printf("%d nodes written in %.0f ms, mapped in %.2f ms (%d)%n",
+					mapped.size(), (t1 - t0) / 1e6, (t2 - t1) / 1e6, sum);
+		} finally {
+			if (temp != null) {
+				java.nio.file.Files.deleteIfExists(temp);
+			}
+		}
+	}
+}
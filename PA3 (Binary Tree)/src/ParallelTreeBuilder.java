@@ -0,0 +1,193 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+public class ParallelTreeBuilder {
+	// Builds the same tree as Assignment3.buildTree on a ForkJoinPool.
+	//
+	// Joining level by level pairs the leaves in aligned blocks of 2, 4, 8..
+	// and carries an odd last block up unchanged, so the subtree over leaves
+	// [lo, hi) always splits at lo + the largest power of two below hi - lo.
+	// That lets each half be built as an independent task, and the split
+	// keys come out identical to the sequential build.
+	//
+	// The leaves are made in parallel too: the sorted input is cut into
+	// chunks whose edges are moved forward to the end of a run of equal
+	// values, each chunk is run-length encoded on its own, and the leaves
+	// are then created at offsets given by the running total of runs.
+	private static final int THRESHOLD = 1 << 13;
+
+	public static BTNode<dataNode> buildTree(double[] a, ForkJoinPool pool) {
+		// a must be sorted in increasing order
+		if (a.length == 0) {
+			return null;
+		}
+		return pool.invoke(new Build(a, pool.getParallelism()));
+	}
+
+	private static class Build extends RecursiveTask<BTNode<dataNode>> {
+		private static final long serialVersionUID = 1L;
+		private double[] a;
+		private int parallelism;
+
+		Build(double[] a, int parallelism) {
+			this.a = a;
+			this.parallelism = parallelism;
+		}
+
+		protected BTNode<dataNode> compute() {
+			int chunks = (int) Math.max(1, Math.min(4L * parallelism, a.length / THRESHOLD));
+			ArrayList<Runs> runs = new ArrayList<Runs>();
+			int start = 0;
+			for (int c = 1; c <= chunks && start < a.length; c++) {
+				int end = (int) ((long) a.length * c / chunks);
+				while (end < a.length && end > 0 && a[end] == a[end - 1]) {
+					end++;
+				}
+				if (end > start) {
+					runs.add(new Runs(a, start, end));
+					start = end;
+				}
+			}
+			ForkJoinTask.invokeAll(runs);
+
+			int n = 0;
+			for (Runs r : runs) {
+				r.offset = n;
+				n += r.n;
+			}
+			@SuppressWarnings("unchecked")
+			BTNode<dataNode>[] nodes = (BTNode<dataNode>[]) new BTNode<?>[n];
+			ArrayList<Leaves> leaves = new ArrayList<Leaves>();
+			for (Runs r : runs) {
+				leaves.add(new Leaves(r, nodes));
+			}
+			ForkJoinTask.invokeAll(leaves);
+
+			return new Join(nodes, 0, n).compute();
+		}
+	}
+
+	private static class Runs extends RecursiveAction {
+		// run-length encodes a[from..to-1] into values/counts
+		private static final long serialVersionUID = 1L;
+		private double[] a;
+		private int from, to;
+		double[] values;
+		int[] counts;
+		int n, offset;
+
+		Runs(double[] a, int from, int to) {
+			this.a = a;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			values = new double[to - from];
+			counts = new int[to - from];
+			int i = from;
+			while (i < to) {
+				int j = i + 1;
+				while (j < to && a[j] == a[i]) {
+					j++;
+				}
+				values[n] = a[i];
+				counts[n] = j - i;
+				n++;
+				i = j;
+			}
+		}
+	}
+
+	private static class Leaves extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private Runs runs;
+		private BTNode<dataNode>[] nodes;
+
+		Leaves(Runs runs, BTNode<dataNode>[] nodes) {
+			this.runs = runs;
+			this.nodes = nodes;
+		}
+
+		protected void compute() {
+			for (int i = 0; i < runs.n; i++) {
+				nodes[runs.offset + i] = Assignment3.makeLeaf(runs.values[i], runs.counts[i]);
+			}
+		}
+	}
+
+	private static class Join extends RecursiveTask<BTNode<dataNode>> {
+		private static final long serialVersionUID = 1L;
+		private BTNode<dataNode>[] nodes;
+		private int lo, hi;
+
+		Join(BTNode<dataNode>[] nodes, int lo, int hi) {
+			this.nodes = nodes;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected BTNode<dataNode> compute() {
+			if (hi - lo <= THRESHOLD) {
+				return joinRange(nodes, lo, hi);
+			}
+			int mid = lo + Integer.highestOneBit(hi - lo - 1);
+			Join left = new Join(nodes, lo, mid);
+			left.fork();
+			BTNode<dataNode> right = new Join(nodes, mid, hi).compute();
+			return Assignment3.makeParent(left.join(), right);
+		}
+	}
+
+	private static BTNode<dataNode> joinRange(BTNode<dataNode>[] nodes, int lo, int hi) {
+		if (hi - lo == 1) {
+			return nodes[lo];
+		}
+		int mid = lo + Integer.highestOneBit(hi - lo - 1);
+		return Assignment3.makeParent(joinRange(nodes, lo, mid), joinRange(nodes, mid, hi));
+	}
+
+	private static boolean sameTree(BTNode<dataNode> t1, BTNode<dataNode> t2) {
+		if (t1 == null || t2 == null) {
+			return t1 == t2;
+		}
+		dataNode d1 = t1.getData();
+		dataNode d2 = t2.getData();
+		return d1.value == d2.value && d1.count == d2.count && d1.total == d2.total
+				&& sameTree(t1.getLeft(), t2.getLeft()) && sameTree(t1.getRight(), t2.getRight());
+	}
+
+	public static void main(String[] args) {
+		// build time on 1..N worker threads against Assignment3.buildTree,
+		// for 2^23 values with about three copies of each
+		int n = 1 << 23;
+		double[] a = MakeQueueBenchmark.sortedInput(n, new java.util.Random(42));
+		BTNode<dataNode> expected = Assignment3.buildTree(a);
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		for (int round = 1; round <= 3; round++) {
+			long t0 = System.nanoTime();
+			Assignment3.buildTree(a);
+			long t1 = System.nanoTime();
+			System.out.printf("round %d: sequential %.0f ms", round, (t1 - t0) / 1e6);
+			for (int p = 1; ; p = Math.min(2 * p, cores)) {
+				ForkJoinPool pool = new ForkJoinPool(p);
+				t0 = System.nanoTime();
+				BTNode<dataNode> root = buildTree(a, pool);
+				t1 = System.nanoTime();
+				pool.shutdown();
+				if (!sameTree(root, expected)) {
+					throw new IllegalStateException("parallel build differs with " + p + " threads");
+				}
+				System.out.printf(", %d threads %.0f ms", p, (t1 - t0) / 1e6);
+				if (p == cores) {
+					break;
+				}
+			}
+			System.out.println();
+		}
+	}
+}
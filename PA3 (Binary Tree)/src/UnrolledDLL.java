@@ -0,0 +1,192 @@
+public class UnrolledDLL<T> {
+	// Same API as DLL, but every node (a chunk) holds up to CAPACITY elements
+	// in an array, so a traversal touches one node per CAPACITY elements
+	// instead of one per element. Inside a chunk the elements occupy
+	// items[lo..hi-1]; addFirst fills a chunk from the back and addLast from
+	// the front, so both ends stay O(1) without shifting anything.
+	private static final int CAPACITY=32;
+
+	private static class Chunk<T> {
+		Object[] items=new Object[CAPACITY];
+		int lo;
+		int hi;
+		Chunk<T> prev;
+		Chunk<T> next;
+
+		Chunk(int start) {
+			lo=start;
+			hi=start;
+		}
+	}
+
+	private Chunk<T> first;
+	private Chunk<T> last;
+	private int count;
+	private Chunk<T> current;	// cursor used by getFirst/getNext
+	private int currentIndex;
+
+	public UnrolledDLL() {
+		this.first=null;
+		this.last=null;
+		count=0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T getFirst() {
+		current=first;
+		if (first!=null) {
+			currentIndex=first.lo;
+			return (T) first.items[currentIndex];
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T getNext() {
+		// null once the cursor has passed the last element
+		if (current!=null) {
+			currentIndex++;
+			if (currentIndex==current.hi) {
+				current=current.next;
+				if (current==null)
+					return null;
+				currentIndex=current.lo;
+			}
+			return (T) current.items[currentIndex];
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T getLast() {
+		if (last!=null)
+			return (T) last.items[last.hi-1];
+		return null;
+	}
+
+	public void addFirst(T data) {
+		if (first==null || first.lo==0) {
+			Chunk<T> c=new Chunk<T>(CAPACITY);
+			c.next=first;
+			if (first!=null)
+				first.prev=c;
+			else
+				last=c;
+			first=c;
+		}
+		first.items[--first.lo]=data;
+		count++;
+	}
+
+	public void addLast(T data) {
+		if (last==null || last.hi==CAPACITY) {
+			Chunk<T> c=new Chunk<T>(0);
+			c.prev=last;
+			if (last!=null)
+				last.next=c;
+			else
+				first=c;
+			last=c;
+		}
+		last.items[last.hi++]=data;
+		count++;
+	}
+
+	public void deleteFirst() {
+		if (first!=null) {
+			first.items[first.lo++]=null;
+			if (first.lo==first.hi) {
+				first=first.next;
+				if (first!=null)
+					first.prev=null;
+				else
+					last=null;
+			}
+			count--;
+		}
+	}
+
+	public void deleteLast() {
+		if (last!=null) {
+			last.items[--last.hi]=null;
+			if (last.lo==last.hi) {
+				last=last.prev;
+				if (last!=null)
+					last.next=null;
+				else
+					first=null;
+			}
+			count--;
+		}
+	}
+
+	public void traverse() {
+		for (Chunk<T> c=first;c!=null;c=c.next) {
+			for (int i=c.lo;i<c.hi;i++) {
+				System.out.print(c.items[i]+" ");
+			}
+		}
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public String toString() {
+		StringBuilder ret=new StringBuilder();
+		for (Chunk<T> c=first;c!=null;c=c.next) {
+			for (int i=c.lo;i<c.hi;i++) {
+				ret.append('+').append(c.items[i]);
+			}
+		}
+		return ret.toString();
+	}
+
+	public static void main(String[] args) {
+		UnrolledDLL<String> list=new UnrolledDLL<String>();
+		list.addFirst("quick");
+		list.addFirst("the");
+		list.addLast("brown");
+		list.addLast("fox");
+		list.traverse();
+		System.out.println();
+		list.deleteFirst();
+		list.deleteLast();
+		System.out.println(list+" size "+list.size());
+
+		// building and walking n elements with each list
+		int n=1<<22;
+		Integer[] boxes=new Integer[n];
+		for (int i=0;i<n;i++) {
+			boxes[i]=i;
+		}
+		for (int round=1;round<=5;round++) {
+			long t0=System.nanoTime();
+			DLL<Integer> dll=new DLL<Integer>();
+			for (int i=0;i<n;i++) {
+				dll.addLast(boxes[i]);
+			}
+			long t1=System.nanoTime();
+			UnrolledDLL<Integer> udll=new UnrolledDLL<Integer>();
+			for (int i=0;i<n;i++) {
+				udll.addLast(boxes[i]);
+			}
+			long t2=System.nanoTime();
+
+			long sum=dll.getFirst();
+			for (int i=1;i<n;i++) {
+				sum+=dll.getNext();
+			}
+			long t3=System.nanoTime();
+			sum+=udll.getFirst();
+			for (int i=1;i<n;i++) {
+				sum+=udll.getNext();
+			}
+			long t4=System.nanoTime();
+			if (round==5) {
+				System.out.printf("add: DLL %.1f ns, UnrolledDLL %.1f ns; walk: DLL %.1f ns, UnrolledDLL %.1f ns per element (%d)%n",
+						(t1-t0)/(double)n,(t2-t1)/(double)n,(t3-t2)/(double)n,(t4-t3)/(double)n,sum);
+			}
+		}
+	}
+}
@@ -3,6 +3,7 @@ public class dataNode implements Comparable<dataNode>{
 	public int count;
 	public double max;
 	public double min;
+	public int total;	// sum of the leaf counts in this subtree
 	
 	public dataNode() {
 		value=0;
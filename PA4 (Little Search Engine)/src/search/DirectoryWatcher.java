@@ -0,0 +1,154 @@
+package search;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * This class keeps a LittleSearchEngine index up to date with the documents in a directory.
+ * Every regular file in the directory is treated as a document. Changes reported by a
+ * WatchService are collected until the directory has been quiet for the debounce interval,
+ * and are then applied to the index as one batch, so a burst of writes to the same file
+ * only re-indexes it once.
+ *
+ */
+public class DirectoryWatcher implements Runnable {
+
+	/**
+	 * The index that is kept up to date.
+	 */
+	LittleSearchEngine engine;
+
+	/**
+	 * The directory being watched.
+	 */
+	Path dir;
+
+	/**
+	 * Milliseconds without any change before the pending changes are applied.
+	 */
+	long debounceMillis;
+
+	/**
+	 * Initializes this watcher. The noise words of the engine must already be loaded.
+	 *
+	 * @param engine Index to keep up to date
+	 * @param dir Directory that holds the documents
+	 * @param debounceMillis Quiet interval before a batch of changes is applied
+	 */
+	public DirectoryWatcher(LittleSearchEngine engine, Path dir, long debounceMillis) {
+		this.engine = engine;
+		this.dir = dir;
+		this.debounceMillis = debounceMillis;
+	}
+
+	/**
+	 * Indexes every document already in the directory, then applies changes as they are
+	 * reported until the thread is interrupted. If the directory can no longer be watched
+	 * (it was deleted, or reading it failed) the reason is printed to System.err, since the
+	 * index is not kept up to date any more.
+	 */
+	public void run() {
+		try (WatchService watcher = dir.getFileSystem().newWatchService()) {
+			dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+			applyChanges(listDocuments());
+
+			while (true) {
+				HashSet<String> pending = new HashSet<String>();
+				WatchKey key = watcher.take();
+				long deadline = System.currentTimeMillis() + 10*debounceMillis;
+				while (key != null) {
+					if (collectChanges(key, pending)) {
+						pending.addAll(listDocuments());
+						synchronized (engine) {
+							pending.addAll(engine.documentKeywords.keySet());
+						}
+					}
+					if (!key.reset()) {
+						applyChanges(pending);
+						System.err.println("DirectoryWatcher: " + dir + " can no longer be watched, the index is no longer updated");
+						return;
+					}
+					// a directory that never goes quiet is still flushed every 10 intervals
+					if (System.currentTimeMillis() >= deadline) {
+						break;
+					}
+					key = watcher.poll(debounceMillis, java.util.concurrent.TimeUnit.MILLISECONDS);
+				}
+				applyChanges(pending);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException | RuntimeException e) {
+			System.err.println("DirectoryWatcher: stopped watching " + dir + ", the index is no longer updated: " + e);
+		}
+	}
+
+	/**
+	 * Adds the name of every document touched by the events of a key to pending.
+	 *
+	 * @param key Signalled watch key
+	 * @param pending Names of the documents that changed since the last batch
+	 * @return true if events were lost, in which case the whole directory must be rescanned
+	 */
+	boolean collectChanges(WatchKey key, HashSet<String> pending) {
+		boolean overflow = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				overflow = true;
+			} else {
+				pending.add(dir.resolve((Path) event.context()).toString());
+			}
+		}
+		return overflow;
+	}
+
+	/**
+	 * Re-indexes the changed documents that still exist and removes the ones that don't.
+	 * The engine loads the keywords before the index is locked, so searches are only held
+	 * up while the batch is merged.
+	 *
+	 * @param changed Names of the documents that changed
+	 */
+	void applyChanges(Collection<String> changed) {
+		ArrayList<String> present = new ArrayList<String>();
+		ArrayList<String> removed = new ArrayList<String>();
+		for (String docFile : changed) {
+			if (isDocument(Paths.get(docFile))) {
+				present.add(docFile);
+			} else {
+				removed.add(docFile);
+			}
+		}
+		engine.reindex(present, removed);
+	}
+
+	/**
+	 * Lists the names of all documents currently in the directory.
+	 *
+	 * @return Document names, resolved against the watched directory
+	 * @throws IOException If the directory cannot be read
+	 */
+	ArrayList<String> listDocuments() throws IOException {
+		ArrayList<String> docs = new ArrayList<String>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path p : stream) {
+				if (isDocument(p)) {
+					docs.add(p.toString());
+				}
+			}
+		}
+		return docs;
+	}
+
+	/**
+	 * A document is any regular file that is not hidden.
+	 *
+	 * @param p Candidate path
+	 * @return true if p should be indexed
+	 */
+	boolean isDocument(Path p) {
+		return Files.isRegularFile(p) && !p.getFileName().toString().startsWith(".");
+	}
+}
@@ -8,6 +8,10 @@ public class Driver {
     public static void main(String[] args) throws IOException {
         LittleSearchEngine LSE = new LittleSearchEngine();
         Scanner sc = new Scanner(System.in);
+        if (args.length >= 2 && args[0].equals("-watch")) {
+            watch(LSE, sc, args[1]);
+            return;
+        }
         LSE.makeIndex("docs.txt", "noisewords.txt");
  
         System.out.print("First keyword: ");
@@ -18,4 +22,29 @@ public class Driver {
         System.out.println();
         System.out.println("Output: " + LSE.top5search(keyword1, keyword2));
     }
+
+    /*
+     * Keeps the index in sync with the documents in dir while answering searches,
+     * until an empty first keyword is entered.
+     */
+    private static void watch(LittleSearchEngine LSE, Scanner sc, String dir) throws IOException {
+        LSE.loadNoiseWords("noisewords.txt");
+        Thread watcher = new Thread(new DirectoryWatcher(LSE, java.nio.file.Paths.get(dir), 500));
+        watcher.setDaemon(true);
+        watcher.start();
+
+        while (true) {
+            System.out.print("First keyword: ");
+            if (!sc.hasNextLine()) break;
+            String keyword1 = sc.nextLine();
+            if (keyword1.isEmpty()) break;
+            System.out.print("Second keyword: ");
+            if (!sc.hasNextLine()) break;
+            String keyword2 = sc.nextLine();
+            System.out.println("Output: " + LSE.top5search(keyword1, keyword2));
+            System.out.println();
+        }
+        sc.close();
+        watcher.interrupt();
+    }
 }
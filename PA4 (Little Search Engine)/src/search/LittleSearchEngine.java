@@ -61,12 +61,20 @@ public class LittleSearchEngine {
 	 */
 	HashMap<String,String> noiseWords;
 	
+	/**
+	 * The hash table of all indexed documents. The key is the document name, and the associated
+	 * value is the list of keywords that occur in it, so that a document can be dropped from the
+	 * index without scanning every keyword.
+	 */
+	HashMap<String,ArrayList<String>> documentKeywords;
+	
 	/**
 	 * Creates the keyWordsIndex and noiseWords hash tables.
 	 */
 	public LittleSearchEngine() {
 		keywordsIndex = new HashMap<String,ArrayList<Occurrence>>(1000,2.0f);
 		noiseWords = new HashMap<String,String>(100,2.0f);
+		documentKeywords = new HashMap<String,ArrayList<String>>();
 	}
 	
 	/**
@@ -82,14 +90,10 @@ public class LittleSearchEngine {
 	public void makeIndex(String docsFile, String noiseWordsFile) 
 	throws FileNotFoundException {
 		// load noise words to hash table
-		Scanner sc = new Scanner(new File(noiseWordsFile));
-		while (sc.hasNext()) {
-			String word = sc.next();
-			noiseWords.put(word,word);
-		}
+		loadNoiseWords(noiseWordsFile);
 		
 		// index all keywords
-		sc = new Scanner(new File(docsFile));
+		Scanner sc = new Scanner(new File(docsFile));
 		while (sc.hasNext()) {
 			String docFile = sc.next();
 			HashMap<String,Occurrence> kws = loadKeyWords(docFile);
@@ -98,6 +102,98 @@ public class LittleSearchEngine {
 		
 	}
 
+	/**
+	 * Loads the noise words into the noiseWords hash table. This must be done before any
+	 * document is indexed, since getKeyWord consults it.
+	 * 
+	 * @param noiseWordsFile Name of file that has a list of noise words, one noise word per line
+	 * @throws FileNotFoundException If the noise words file is not found on disk
+	 */
+	public void loadNoiseWords(String noiseWordsFile) 
+	throws FileNotFoundException {
+		Scanner sc = new Scanner(new File(noiseWordsFile));
+		while (sc.hasNext()) {
+			String word = sc.next();
+			noiseWords.put(word,word);
+		}
+		sc.close();
+	}
+	
+	/**
+	 * Applies a batch of document changes to the live index. Every document in loaded is
+	 * (re-)indexed with the given keywords, replacing any earlier version of it, and every
+	 * document in removed is dropped from the index. The keywords should be loaded with
+	 * loadKeyWords before calling this, so that no file is read while the index is locked.
+	 * 
+	 * The whole batch is applied while holding the lock that top5search takes, so a search
+	 * sees the index either entirely before or entirely after the batch.
+	 * 
+	 * @param loaded Keywords hash table of each new or changed document, keyed by document name
+	 * @param removed Names of the documents that no longer exist
+	 */
+	public synchronized void updateDocuments(HashMap<String,HashMap<String,Occurrence>> loaded,
+			Collection<String> removed) {
+		for (String docFile : removed) {
+			removeDocument(docFile);
+		}
+		for (String docFile : loaded.keySet()) {
+			removeDocument(docFile);
+			mergeKeyWords(loaded.get(docFile));
+		}
+	}
+	
+	/**
+	 * Re-indexes the given documents from disk and drops the removed ones, as one batch.
+	 * The changed documents are read before the index is locked, and one that can no
+	 * longer be opened is treated as removed.
+	 *
+	 * @param changed Names of the documents that are new or have changed
+	 * @param removed Names of the documents that no longer exist
+	 */
+	public void reindex(Collection<String> changed, Collection<String> removed) {
+		HashMap<String,HashMap<String,Occurrence>> loaded = new HashMap<String,HashMap<String,Occurrence>>();
+		ArrayList<String> gone = new ArrayList<String>(removed);
+		for (String docFile : changed) {
+			try {
+				loaded.put(docFile, loadKeyWords(docFile));
+			} catch (FileNotFoundException e) {
+				// deleted after it was reported as changed
+				gone.add(docFile);
+			}
+		}
+		updateDocuments(loaded, gone);
+	}
+
+	/**
+	 * Removes every Occurrence of the given document from the keywordsIndex hash table.
+	 * Keywords that no longer occur in any document are removed as well. Removing an
+	 * element keeps the remaining occurrences in descending order of frequency.
+	 * 
+	 * @param docFile Name of the document to be removed
+	 */
+	public synchronized void removeDocument(String docFile) {
+		ArrayList<String> keyWords = documentKeywords.remove(docFile);
+		if (keyWords == null) {
+			return;
+		}
+		
+		for (String keyWord : keyWords) {
+			ArrayList<Occurrence> occs = keywordsIndex.get(keyWord);
+			if (occs == null) {
+				continue;
+			}
+			for (int i = 0; i < occs.size(); i++) {
+				if (occs.get(i).document.equals(docFile)) {
+					occs.remove(i);
+					break;
+				}
+			}
+			if (occs.isEmpty()) {
+				keywordsIndex.remove(keyWord);
+			}
+		}
+	}
+	
 	/**
 	 * Scans a document, and loads all keywords found into a hash table of keyword occurrences
 	 * in the document. Uses the getKeyWord method to separate keywords from other words.
@@ -135,11 +231,18 @@ public class LittleSearchEngine {
 	 * 
 	 * @param kws Keywords hash table for a document
 	 */
-	public void mergeKeyWords(HashMap<String,Occurrence> kws) {
+	public synchronized void mergeKeyWords(HashMap<String,Occurrence> kws) {
 		for (String keyWord : kws.keySet()) {
 			String tempWord = keyWord;
 			Occurrence stuff = kws.get(keyWord);
 			
+			ArrayList<String> docWords = documentKeywords.get(stuff.document);
+			if (docWords == null) {
+				docWords = new ArrayList<String>();
+				documentKeywords.put(stuff.document, docWords);
+			}
+			docWords.add(tempWord);
+			
 			if (keywordsIndex.containsKey(tempWord) == true) {
 				keywordsIndex.get(tempWord).add(stuff);
 				insertLastOccurrence(keywordsIndex.get(tempWord));
@@ -291,7 +394,7 @@ public class LittleSearchEngine {
 	 *         frequencies. The result size is limited to 5 documents. If there are no matching documents,
 	 *         the result is null.
 	 */
-	public ArrayList<String> top5search(String kw1, String kw2) {
+	public synchronized ArrayList<String> top5search(String kw1, String kw2) {
 		ArrayList<String> docs = new ArrayList<String>();
 		int numDocs = docs.size();
 		